@@ -0,0 +1,128 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free concurrency limiter whose limit adapts to observed latency (AIMD).
+ *
+ * The limiter tracks a no-load latency baseline and only adjusts while at least half of the
+ * limit is in use. Then, while requests complete within {@code latencyTolerance} times that
+ * baseline, the limit grows by one (additive increase). When latency climbs past the
+ * tolerance, i.e. a queue is building somewhere, the limit is cut by {@code backoffRatio}
+ * (multiplicative decrease). Requests beyond the current limit are rejected instead of
+ * queued, which keeps latency bounded for the requests that are admitted.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** Fraction of the gap to a slower sample that the baseline drifts up by, so it can recover. */
+    private static final int BASELINE_DRIFT_DIVISOR = 256;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong baselineNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong rejected = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double latencyTolerance, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                               double latencyTolerance, double backoffRatio, LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (latencyTolerance < 1.0 || backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException("Tolerance must be >= 1 and backoff ratio in (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.limit = new AtomicInteger(initialLimit);
+    }
+
+    /**
+     * Admits a request if fewer than the current limit are in flight.
+     *
+     * @return start time to pass to {@link #release}, or -1 if the request is rejected
+     */
+    public long tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                rejected.incrementAndGet();
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return nanoClock.getAsLong();
+            }
+        }
+    }
+
+    /**
+     * Completes an admitted request and feeds its latency back into the limit.
+     *
+     * @param startNanos Value returned by {@link #tryAcquire}
+     * @param success false for failed requests, which release their slot without a latency sample
+     */
+    public void release(long startNanos, boolean success) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        if (success) {
+            onSample(nanoClock.getAsLong() - startNanos, inFlightAtCompletion);
+        }
+    }
+
+    private void onSample(long rttNanos, int inFlightAtCompletion) {
+        long baseline = updateBaseline(Math.max(rttNanos, 1));
+        int current = limit.get();
+        if (inFlightAtCompletion * 2 < current) {
+            // Mostly idle: latency noise here says nothing about queueing, so leave the limit alone
+            return;
+        }
+        int updated;
+        if (rttNanos > baseline * latencyTolerance) {
+            updated = Math.max(minLimit, (int) (current * backoffRatio));
+        } else {
+            updated = Math.min(maxLimit, current + 1);
+        }
+        // A lost race means another sample already moved the limit, which is good enough
+        limit.compareAndSet(current, updated);
+    }
+
+    private long updateBaseline(long rttNanos) {
+        while (true) {
+            long baseline = baselineNanos.get();
+            long updated;
+            if (rttNanos < baseline) {
+                updated = rttNanos;
+            } else {
+                updated = baseline + Math.max(1, (rttNanos - baseline) / BASELINE_DRIFT_DIVISOR);
+            }
+            if (baselineNanos.compareAndSet(baseline, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
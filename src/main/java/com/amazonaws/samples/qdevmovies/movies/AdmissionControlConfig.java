@@ -0,0 +1,57 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Wires rate limiting and adaptive load shedding in front of the search endpoints.
+ * Tunables live under {@code movies.admission} in application.yml.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "movies.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    @Value("${movies.admission.rate.permits-per-second:50}")
+    private double permitsPerSecond;
+
+    @Value("${movies.admission.rate.burst:100}")
+    private int burst;
+
+    @Value("${movies.admission.rate.max-clients:10000}")
+    private int maxClients;
+
+    @Value("${movies.admission.concurrency.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${movies.admission.concurrency.min-limit:4}")
+    private int minLimit;
+
+    @Value("${movies.admission.concurrency.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${movies.admission.concurrency.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${movies.admission.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Bean
+    public TokenBucketRateLimiter searchRateLimiter() {
+        return new TokenBucketRateLimiter(permitsPerSecond, burst, maxClients);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter searchConcurrencyLimiter() {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SearchAdmissionInterceptor(searchRateLimiter(), searchConcurrencyLimiter()))
+                .addPathPatterns("/movies/search", "/movies/search/form");
+    }
+}
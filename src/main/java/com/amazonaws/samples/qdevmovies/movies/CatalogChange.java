@@ -0,0 +1,41 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * One entry in the catalog changelog: a movie was added, updated, removed or had its reviews changed.
+ */
+public final class CatalogChange {
+
+    public enum Type {
+        ADDED, UPDATED, REMOVED, REVIEWED
+    }
+
+    private final long version;
+    private final Type type;
+    private final long movieId;
+
+    CatalogChange(long version, Type type, long movieId) {
+        this.version = version;
+        this.type = type;
+        this.movieId = movieId;
+    }
+
+    /**
+     * @return catalog version this change produced
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getMovieId() {
+        return movieId;
+    }
+
+    @Override
+    public String toString() {
+        return version + ":" + type + ":" + movieId;
+    }
+}
@@ -0,0 +1,86 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Bounded, in-memory log of catalog changes, each tagged with the next catalog version.
+ *
+ * Only the most recent {@code capacity} changes are kept. A client whose version predates
+ * the oldest retained change, or that is ahead of this log (for example after a restart),
+ * cannot be brought up to date from the log and has to resync the whole catalog.
+ */
+final class CatalogChangeLog {
+
+    private final int capacity;
+    private final Deque<CatalogChange> changes = new ArrayDeque<>();
+    private long version;
+
+    /**
+     * @param capacity Maximum number of changes retained
+     * @param initialVersion Version of the catalog as loaded, before any change
+     */
+    CatalogChangeLog(int capacity, long initialVersion) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Changelog capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.version = initialVersion;
+    }
+
+    /**
+     * Records a change under the next version, evicting the oldest change if the log is full.
+     */
+    synchronized CatalogChange append(CatalogChange.Type type, long movieId) {
+        CatalogChange change = new CatalogChange(++version, type, movieId);
+        if (changes.size() == capacity) {
+            changes.removeFirst();
+        }
+        changes.addLast(change);
+        return change;
+    }
+
+    /**
+     * @return the version the next appended change will get
+     */
+    synchronized long nextVersion() {
+        return version + 1;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the oldest version the log can still bring a client up to date from
+     */
+    synchronized long getOldestVersion() {
+        return changes.isEmpty() ? version : changes.getFirst().getVersion() - 1;
+    }
+
+    /**
+     * @param since Version the client last saw
+     * @return the changes after that version, oldest first, or empty if the client must resync
+     */
+    synchronized Optional<List<CatalogChange>> since(long since) {
+        if (since < getOldestVersion() || since > version) {
+            return Optional.empty();
+        }
+        List<CatalogChange> newer = new ArrayList<>();
+        Iterator<CatalogChange> latestFirst = changes.descendingIterator();
+        while (latestFirst.hasNext()) {
+            CatalogChange change = latestFirst.next();
+            if (change.getVersion() <= since) {
+                break;
+            }
+            newer.add(change);
+        }
+        Collections.reverse(newer);
+        return Optional.of(newer);
+    }
+}
@@ -0,0 +1,60 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Net effect of the catalog changes between two versions, one entry per affected movie.
+ *
+ * A movie added and removed again within the range does not appear at all; one removed and
+ * re-added appears as updated. Movies carry their current state, not the state at each change.
+ */
+public final class CatalogDelta {
+
+    private final long sinceVersion;
+    private final long version;
+    private final List<Movie> added;
+    private final List<Movie> updated;
+    private final List<Long> removed;
+    private final List<Long> reviewsChanged;
+
+    CatalogDelta(long sinceVersion, long version, List<Movie> added, List<Movie> updated,
+                 List<Long> removed, List<Long> reviewsChanged) {
+        this.sinceVersion = sinceVersion;
+        this.version = version;
+        this.added = Collections.unmodifiableList(added);
+        this.updated = Collections.unmodifiableList(updated);
+        this.removed = Collections.unmodifiableList(removed);
+        this.reviewsChanged = Collections.unmodifiableList(reviewsChanged);
+    }
+
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    /**
+     * @return catalog version the delta brings the client up to
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Movie> getAdded() {
+        return added;
+    }
+
+    public List<Movie> getUpdated() {
+        return updated;
+    }
+
+    public List<Long> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return ids of movies still in the catalog whose reviews changed
+     */
+    public List<Long> getReviewsChanged() {
+        return reviewsChanged;
+    }
+}
@@ -0,0 +1,262 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Column-wise view of a catalog that query plans evaluate against, with a movie's catalog
+ * position as its bit index.
+ *
+ * Director and genre are dictionary-encoded: each distinct value maps to the bitset of
+ * movies carrying it, so a term is matched against the dictionary rather than every movie.
+ * Numeric fields keep a sorted copy of their values, so a range is two binary searches.
+ * Titles have no index and are scanned, but only over the movies still in play.
+ * Selectivity estimates come from those structures plus a fixed sample of titles.
+ * The index is immutable once built.
+ */
+public class CatalogIndex {
+
+    private static final int TITLE_SAMPLE_SIZE = 256;
+
+    /**
+     * Text fields matched by case-insensitive partial match
+     */
+    public enum TextField { NAME, DIRECTOR, GENRE }
+
+    /**
+     * Numeric fields matched by inclusive range
+     */
+    public enum NumericField { ID, YEAR, RATING, DURATION }
+
+    private final List<Movie> movies;
+    private final String[] titles;
+    private final String[] titleSample;
+    private final Map<TextField, Map<String, BitSet>> dictionaries = new LinkedHashMap<>();
+    private final Map<NumericField, NumericColumn> columns = new LinkedHashMap<>();
+
+    public CatalogIndex(List<Movie> movies) {
+        this.movies = Collections.unmodifiableList(new ArrayList<>(movies));
+        this.titles = new String[movies.size()];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = movies.get(i).getMovieName().toLowerCase(Locale.ROOT);
+        }
+        this.titleSample = sample(titles);
+
+        dictionaries.put(TextField.DIRECTOR, dictionary(Movie::getDirector));
+        dictionaries.put(TextField.GENRE, dictionary(Movie::getGenre));
+
+        columns.put(NumericField.ID, new NumericColumn(movies, Movie::getId));
+        columns.put(NumericField.YEAR, new NumericColumn(movies, Movie::getYear));
+        columns.put(NumericField.RATING, new NumericColumn(movies, Movie::getImdbRating));
+        columns.put(NumericField.DURATION, new NumericColumn(movies, Movie::getDuration));
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    /**
+     * @return a new bitset with every movie set
+     */
+    public BitSet all() {
+        BitSet bits = new BitSet(movies.size());
+        bits.set(0, movies.size());
+        return bits;
+    }
+
+    /**
+     * @return the movies whose bits are set, in catalog order
+     */
+    public List<Movie> select(BitSet bits) {
+        List<Movie> selected = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            selected.add(movies.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Finds the candidates whose field contains the given lowercase text.
+     *
+     * @param field Field to match
+     * @param text Lowercase text to look for
+     * @param candidates Movies still in play; not modified
+     * @return the matching subset of the candidates
+     */
+    public BitSet matchText(TextField field, String text, BitSet candidates) {
+        BitSet matches = new BitSet(movies.size());
+        if (field == TextField.NAME) {
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (titles[i].contains(text)) {
+                    matches.set(i);
+                }
+            }
+            return matches;
+        }
+        for (Map.Entry<String, BitSet> entry : dictionaries.get(field).entrySet()) {
+            if (entry.getKey().contains(text)) {
+                matches.or(entry.getValue());
+            }
+        }
+        matches.and(candidates);
+        return matches;
+    }
+
+    /**
+     * @return estimated number of movies whose field contains the given lowercase text
+     */
+    public long estimateText(TextField field, String text) {
+        if (field == TextField.NAME) {
+            if (titleSample.length == 0) {
+                return 0;
+            }
+            int hits = 0;
+            for (String title : titleSample) {
+                if (title.contains(text)) {
+                    hits++;
+                }
+            }
+            // A term the sample missed may still match a few movies outside it
+            return hits == 0 ? 1 : (long) hits * movies.size() / titleSample.length;
+        }
+        long count = 0;
+        for (Map.Entry<String, BitSet> entry : dictionaries.get(field).entrySet()) {
+            if (entry.getKey().contains(text)) {
+                count += entry.getValue().cardinality();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the candidates whose field lies within an inclusive range.
+     *
+     * @param field Field to match
+     * @param min Lowest matching value
+     * @param max Highest matching value
+     * @param candidates Movies still in play; not modified
+     * @return the matching subset of the candidates
+     */
+    public BitSet matchRange(NumericField field, double min, double max, BitSet candidates) {
+        return columns.get(field).match(min, max, candidates);
+    }
+
+    /**
+     * @return exact number of movies whose field lies within the inclusive range
+     */
+    public long estimateRange(NumericField field, double min, double max) {
+        return columns.get(field).count(min, max);
+    }
+
+    private Map<String, BitSet> dictionary(Function<Movie, String> field) {
+        Map<String, BitSet> dictionary = new LinkedHashMap<>();
+        for (int i = 0; i < movies.size(); i++) {
+            String value = field.apply(movies.get(i)).toLowerCase(Locale.ROOT);
+            dictionary.computeIfAbsent(value, key -> new BitSet(movies.size())).set(i);
+        }
+        return dictionary;
+    }
+
+    private static String[] sample(String[] values) {
+        if (values.length <= TITLE_SAMPLE_SIZE) {
+            return values;
+        }
+        String[] sample = new String[TITLE_SAMPLE_SIZE];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = values[(int) ((long) i * values.length / sample.length)];
+        }
+        return sample;
+    }
+
+    /**
+     * One numeric field: its values by catalog position, and the positions sorted by value
+     */
+    private static final class NumericColumn {
+        private final double[] values;
+        private final double[] sortedValues;
+        private final int[] sortedPositions;
+
+        NumericColumn(List<Movie> movies, ToDoubleFunction<Movie> field) {
+            values = new double[movies.size()];
+            Integer[] order = new Integer[movies.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = field.applyAsDouble(movies.get(i));
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(position -> values[position]));
+            sortedValues = new double[values.length];
+            sortedPositions = new int[values.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedPositions[i] = order[i];
+                sortedValues[i] = values[order[i]];
+            }
+        }
+
+        int count(double min, double max) {
+            return Math.max(0, upperBound(max) - lowerBound(min));
+        }
+
+        BitSet match(double min, double max, BitSet candidates) {
+            int from = lowerBound(min);
+            int to = upperBound(max);
+            BitSet matches = new BitSet(values.length);
+            if (to - from > candidates.cardinality()) {
+                // Fewer candidates than range hits, so probe the candidates instead
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    if (values[i] >= min && values[i] <= max) {
+                        matches.set(i);
+                    }
+                }
+                return matches;
+            }
+            for (int i = from; i < to; i++) {
+                matches.set(sortedPositions[i]);
+            }
+            matches.and(candidates);
+            return matches;
+        }
+
+        /**
+         * @return index of the first sorted value not below the given value
+         */
+        private int lowerBound(double value) {
+            int low = 0;
+            int high = sortedValues.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedValues[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return index of the first sorted value above the given value
+         */
+        private int upperBound(double value) {
+            int low = 0;
+            int high = sortedValues.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedValues[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
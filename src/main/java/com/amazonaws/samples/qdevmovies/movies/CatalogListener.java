@@ -0,0 +1,14 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Notified by {@link MovieService} after each catalog or review change, in version order.
+ * Listeners run while the catalog's write lock is held, so they should be quick.
+ */
+public interface CatalogListener {
+
+    /**
+     * @param change The change that was just applied
+     * @param movie The movie as it is now, or null if it was removed
+     */
+    void onCatalogChange(CatalogChange change, Movie movie);
+}
@@ -0,0 +1,180 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.BlockCompressedText;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimated heap retained by a catalog, broken down by movie field.
+ *
+ * Sizes follow the 64-bit HotSpot layout with compressed object pointers: 12-byte object headers,
+ * 16-byte array headers, 4-byte references and 8-byte alignment. Strings are sized for the running
+ * JVM: one byte per character for Latin-1 strings where compact strings are on (JDK 9+ by
+ * default), otherwise two bytes per character, as in JDK 8's char arrays. Each shared instance, such as a
+ * dictionary-encoded director or the compressed description store, is counted once.
+ * Decoded-block caches and other transient allocations are not included.
+ */
+public final class CatalogMemoryReport {
+
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    // header + id, imdbRating + year, duration, descriptionIndex + 7 references
+    private static final long MOVIE_SHELL_BYTES = align(OBJECT_HEADER_BYTES + 8 + 8 + 3 * 4 + 7 * REFERENCE_BYTES);
+    // header + value reference + hash (+ coder + hashIsZero since JDK 9 and 13, still within the padding)
+    private static final long STRING_SHELL_BYTES = align(OBJECT_HEADER_BYTES + REFERENCE_BYTES + 4 + 1 + 1);
+    private static final long FRAGMENT_SHELL_BYTES = align(OBJECT_HEADER_BYTES + REFERENCE_BYTES);
+    // header + blocks, decodedBlocks references + blockSize, size + uncompressedBytes
+    private static final long BLOCK_STORE_SHELL_BYTES = align(OBJECT_HEADER_BYTES + 2 * REFERENCE_BYTES + 2 * 4 + 8);
+
+    private static final boolean COMPACT_STRINGS = compactStrings();
+
+    private final int movieCount;
+    private final Map<String, Long> bytesByField;
+
+    private CatalogMemoryReport(int movieCount, Map<String, Long> bytesByField) {
+        this.movieCount = movieCount;
+        this.bytesByField = Collections.unmodifiableMap(bytesByField);
+    }
+
+    /**
+     * @param movies Catalog to account for
+     * @return the estimated footprint of the movies and everything they reference
+     */
+    public static CatalogMemoryReport measure(Collection<Movie> movies) {
+        return measure(movies, COMPACT_STRINGS);
+    }
+
+    /**
+     * @param movies Catalog to account for
+     * @param compactStrings Whether strings are sized as Latin-1 bytes where possible, rather than UTF-16
+     * @return the estimated footprint of the movies and everything they reference
+     */
+    static CatalogMemoryReport measure(Collection<Movie> movies, boolean compactStrings) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long shells = 0;
+        long names = 0;
+        long directors = 0;
+        long genres = 0;
+        long descriptions = 0;
+        long icons = 0;
+        long fragments = 0;
+        for (Movie movie : movies) {
+            shells += MOVIE_SHELL_BYTES;
+            names += stringBytes(movie.getMovieName(), compactStrings, seen);
+            directors += stringBytes(movie.getDirector(), compactStrings, seen);
+            genres += stringBytes(movie.getGenre(), compactStrings, seen);
+            icons += stringBytes(movie.getIcon(), compactStrings, seen);
+            BlockCompressedText blocks = movie.getDescriptionBlocks();
+            descriptions += blocks == null
+                    ? stringBytes(movie.getDescription(), compactStrings, seen)
+                    : blockStoreBytes(blocks, seen);
+            JsonFragment fragment = movie.getJsonFragment();
+            if (fragment != null) {
+                fragments += FRAGMENT_SHELL_BYTES + align(ARRAY_HEADER_BYTES + fragment.byteLength());
+            }
+        }
+
+        Map<String, Long> bytesByField = new LinkedHashMap<>();
+        bytesByField.put("object", shells);
+        bytesByField.put("movieName", names);
+        bytesByField.put("director", directors);
+        bytesByField.put("genre", genres);
+        bytesByField.put("description", descriptions);
+        bytesByField.put("icon", icons);
+        bytesByField.put("jsonFragment", fragments);
+        return new CatalogMemoryReport(movies.size(), bytesByField);
+    }
+
+    public int getMovieCount() {
+        return movieCount;
+    }
+
+    /**
+     * @return estimated bytes per field, in declaration order
+     */
+    public Map<String, Long> getBytesByField() {
+        return bytesByField;
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (long bytes : bytesByField.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    public double getBytesPerMovie() {
+        return movieCount == 0 ? 0 : (double) getTotalBytes() / movieCount;
+    }
+
+    /**
+     * @return a table of bytes per field and per movie, one field per line
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format("%d movies, %d bytes (%.0f bytes/movie)",
+                movieCount, getTotalBytes(), getBytesPerMovie()));
+        for (Map.Entry<String, Long> field : bytesByField.entrySet()) {
+            report.append(String.format("%n  %-13s %10d bytes %8.1f bytes/movie", field.getKey(), field.getValue(),
+                    movieCount == 0 ? 0.0 : (double) field.getValue() / movieCount));
+        }
+        return report.toString();
+    }
+
+    private static long stringBytes(String value, boolean compactStrings, Set<Object> seen) {
+        if (value == null || !seen.add(value)) {
+            return 0;
+        }
+        int bytesPerChar = compactStrings && isLatin1(value) ? 1 : 2;
+        return STRING_SHELL_BYTES + align(ARRAY_HEADER_BYTES + (long) value.length() * bytesPerChar);
+    }
+
+    private static long blockStoreBytes(BlockCompressedText blocks, Set<Object> seen) {
+        if (!seen.add(blocks)) {
+            return 0;
+        }
+        // Each block is its own byte array; alignment padding averages half the alignment
+        return BLOCK_STORE_SHELL_BYTES
+                + align(ARRAY_HEADER_BYTES + (long) blocks.getBlockCount() * REFERENCE_BYTES)
+                + (long) blocks.getBlockCount() * (ARRAY_HEADER_BYTES + 4)
+                + blocks.getCompressedBytes();
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether this JVM stores Latin-1 strings one byte per character
+     */
+    static boolean compactStrings() {
+        if (System.getProperty("java.specification.version", "").startsWith("1.")) {
+            return false;
+        }
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return hotSpot == null || Boolean.parseBoolean(hotSpot.getVMOption("CompactStrings").getValue());
+        } catch (IllegalArgumentException e) {
+            // Not HotSpot, or no such option; compact strings are the JDK 9+ default
+            return true;
+        }
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,36 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the catalog's estimated memory footprint per field at /actuator/metrics/movies.catalog.memory,
+ * and its version at /actuator/metrics/movies.catalog.version when the catalog can change
+ */
+@Component
+public class CatalogMetrics implements MeterBinder {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (movieService.getCatalogVersion().isPresent()) {
+            // A read-only catalog never changes, so it has no version to report
+            Gauge.builder("movies.catalog.version", movieService, service -> service.getCatalogVersion().getAsLong())
+                    .description("Current catalog version, bumped by every catalog and review change")
+                    .register(registry);
+        }
+
+        for (String field : movieService.getMemoryReport().getBytesByField().keySet()) {
+            Gauge.builder("movies.catalog.memory", () -> movieService.getMemoryReport().getBytesByField().get(field))
+                    .description("Estimated heap retained by the movie catalog")
+                    .tag("field", field)
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Immutable view of the catalog and its indexes, in id order.
+ *
+ * A snapshot is a base, with its partitions, id map and query index built in one go, plus a
+ * small overlay of the movies changed since. A change copies only the overlay, so it costs
+ * O(k log k) for k overlaid movies rather than a rebuild of every index. Reads look in the
+ * overlay first; scans and queries run over the base with overlaid movies skipped, and the
+ * overlay's matches are merged in by id. Once the overlay reaches about the square root of the
+ * catalog size, the next change folds it into a new base, so rebuilds are amortized over that
+ * many changes.
+ */
+final class CatalogSnapshot {
+
+    private static final int MIN_OVERLAY_LIMIT = 64;
+
+    private final Base base;
+    private final NavigableMap<Long, Movie> overlay;
+    private final int size;
+    private volatile CatalogIndex overlayIndex;
+    private volatile List<Movie> movies;
+    private volatile CatalogMemoryReport memoryReport;
+
+    /**
+     * @param movies Catalog in id order
+     * @param parallelSearchThreshold Catalog size from which full scans are fanned out across cores
+     */
+    CatalogSnapshot(List<Movie> movies, int parallelSearchThreshold) {
+        this(new Base(movies, parallelSearchThreshold), Collections.emptyNavigableMap(), movies.size());
+    }
+
+    private CatalogSnapshot(Base base, NavigableMap<Long, Movie> overlay, int size) {
+        this.base = base;
+        this.overlay = overlay;
+        this.size = size;
+    }
+
+    /**
+     * @return a snapshot with the movie added, or replacing the one with the same id
+     */
+    CatalogSnapshot with(Movie movie) {
+        TreeMap<Long, Movie> changed = new TreeMap<>(overlay);
+        changed.put(movie.getId(), movie);
+        return next(changed, get(movie.getId()) == null ? size + 1 : size);
+    }
+
+    /**
+     * @return a snapshot without the movie, or this one if it isn't in the catalog
+     */
+    CatalogSnapshot without(long movieId) {
+        if (get(movieId) == null) {
+            return this;
+        }
+        TreeMap<Long, Movie> changed = new TreeMap<>(overlay);
+        if (base.movieMap.containsKey(movieId)) {
+            // An overlaid null hides the base's movie
+            changed.put(movieId, null);
+        } else {
+            changed.remove(movieId);
+        }
+        return next(changed, size - 1);
+    }
+
+    private CatalogSnapshot next(TreeMap<Long, Movie> changed, int newSize) {
+        CatalogSnapshot next = new CatalogSnapshot(base, Collections.unmodifiableNavigableMap(changed), newSize);
+        if (changed.size() >= overlayLimit(base.catalog.getMovies().size())) {
+            return new CatalogSnapshot(next.getMovies(), base.parallelSearchThreshold);
+        }
+        return next;
+    }
+
+    /**
+     * @return the movie with the given id, or null
+     */
+    Movie get(long movieId) {
+        if (overlay.containsKey(movieId)) {
+            return overlay.get(movieId);
+        }
+        return base.movieMap.get(movieId);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return every movie in id order; after a change, merged on first use
+     */
+    List<Movie> getMovies() {
+        List<Movie> result = movies;
+        if (result == null) {
+            if (overlay.isEmpty()) {
+                result = base.catalog.getMovies();
+            } else {
+                List<Movie> fromBase = new ArrayList<>(base.catalog.getMovies());
+                fromBase.removeIf(movie -> overlay.containsKey(movie.getId()));
+                result = Collections.unmodifiableList(merge(fromBase, new ArrayList<>(overlay.values())));
+            }
+            movies = result;
+        }
+        return result;
+    }
+
+    /**
+     * @param predicate Thread-safe filter applied to every movie
+     * @return the matching movies, in id order
+     */
+    List<Movie> filter(Predicate<Movie> predicate) {
+        if (overlay.isEmpty()) {
+            return base.catalog.filter(predicate);
+        }
+        List<Movie> fromBase = base.catalog.filter(movie -> !overlay.containsKey(movie.getId()) && predicate.test(movie));
+        List<Movie> fromOverlay = new ArrayList<>();
+        for (Movie movie : overlay.values()) {
+            if (movie != null && predicate.test(movie)) {
+                fromOverlay.add(movie);
+            }
+        }
+        return merge(fromBase, fromOverlay);
+    }
+
+    /**
+     * @return the movies the plan matches, in id order
+     */
+    List<Movie> query(MovieQuery plan) {
+        List<Movie> fromBase = plan.execute(base.index);
+        if (overlay.isEmpty()) {
+            return fromBase;
+        }
+        fromBase.removeIf(movie -> overlay.containsKey(movie.getId()));
+        return merge(fromBase, plan.execute(overlayIndex()));
+    }
+
+    /**
+     * @return partitions of the base, which full scans are split across
+     */
+    PartitionedCatalog getBaseCatalog() {
+        return base.catalog;
+    }
+
+    /**
+     * @return number of movies changed since the base was built
+     */
+    int getOverlaySize() {
+        return overlay.size();
+    }
+
+    CatalogMemoryReport getMemoryReport() {
+        // Measured on first use, so a burst of changes doesn't re-measure every snapshot
+        CatalogMemoryReport report = memoryReport;
+        if (report == null) {
+            report = CatalogMemoryReport.measure(getMovies());
+            memoryReport = report;
+        }
+        return report;
+    }
+
+    private CatalogIndex overlayIndex() {
+        CatalogIndex index = overlayIndex;
+        if (index == null) {
+            List<Movie> changed = new ArrayList<>(overlay.size());
+            for (Movie movie : overlay.values()) {
+                if (movie != null) {
+                    changed.add(movie);
+                }
+            }
+            index = new CatalogIndex(changed);
+            overlayIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Merges two id-ordered lists, skipping the nulls that mark removed movies
+     */
+    private static List<Movie> merge(List<Movie> first, List<Movie> second) {
+        List<Movie> merged = new ArrayList<>(first.size() + second.size());
+        Iterator<Movie> left = first.iterator();
+        Iterator<Movie> right = second.iterator();
+        Movie a = next(left);
+        Movie b = next(right);
+        while (a != null || b != null) {
+            if (b == null || (a != null && a.getId() < b.getId())) {
+                merged.add(a);
+                a = next(left);
+            } else {
+                merged.add(b);
+                b = next(right);
+            }
+        }
+        return merged;
+    }
+
+    private static Movie next(Iterator<Movie> movies) {
+        while (movies.hasNext()) {
+            Movie movie = movies.next();
+            if (movie != null) {
+                return movie;
+            }
+        }
+        return null;
+    }
+
+    static int overlayLimit(int baseSize) {
+        return Math.max(MIN_OVERLAY_LIMIT, (int) Math.sqrt(baseSize));
+    }
+
+    /**
+     * The indexed part of a snapshot, shared by every snapshot until the overlay is folded in
+     */
+    private static final class Base {
+        final PartitionedCatalog catalog;
+        final Map<Long, Movie> movieMap;
+        final CatalogIndex index;
+        final int parallelSearchThreshold;
+
+        Base(List<Movie> movies, int parallelSearchThreshold) {
+            this.catalog = new PartitionedCatalog(movies, parallelSearchThreshold);
+            this.movieMap = new HashMap<>();
+            for (Movie movie : catalog.getMovies()) {
+                movieMap.put(movie.getId(), movie);
+            }
+            this.index = new CatalogIndex(catalog.getMovies());
+            this.parallelSearchThreshold = parallelSearchThreshold;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Always-on Flight Recorder recording that keeps slow movie details requests for offline analysis.
+ *
+ * Only the two movie details event types are enabled, and only occurrences above
+ * {@code movies.jfr.threshold} are written, so normal traffic costs an uncommitted event per
+ * phase. The recording is a rolling window bounded by age and size. It is written to
+ * {@code movies.jfr.destination} on shutdown and can be dumped at any time with
+ * {@code jcmd <pid> JFR.dump name=movie-details filename=details.jfr}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "movies.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class DetailsFlightRecording {
+    private static final Logger logger = LogManager.getLogger(DetailsFlightRecording.class);
+
+    static final String RECORDING_NAME = "movie-details";
+
+    @Value("${movies.jfr.threshold:20ms}")
+    private Duration threshold;
+
+    @Value("${movies.jfr.max-age:1h}")
+    private Duration maxAge;
+
+    @Value("${movies.jfr.max-size:64MB}")
+    private DataSize maxSize;
+
+    @Value("${movies.jfr.destination:./data/movie-details.jfr}")
+    private String destination;
+
+    private Recording recording;
+
+    @PostConstruct
+    public void start() {
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("Flight Recorder not available in this JVM, details requests won't be recorded");
+            return;
+        }
+        recording = new Recording();
+        recording.setName(RECORDING_NAME);
+        recording.enable(MovieDetailsRequestEvent.class).withThreshold(threshold);
+        recording.enable(MovieDetailsPhaseEvent.class).withThreshold(threshold);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSize.toBytes());
+        try {
+            Path path = Paths.get(destination).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            recording.setDestination(path);
+            recording.setDumpOnExit(true);
+        } catch (IOException e) {
+            logger.warn("Can't write Flight Recorder dumps to {}: {}", destination, e.getMessage());
+        }
+        recording.start();
+        logger.info("Recordin' movie details requests slower than {} ms to {}", threshold.toMillis(), destination);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            // Stopping writes the recording to its destination, if one was set
+            recording.stop();
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Movie repository backed by an embedded SQL database (H2 in file mode by default).
+ *
+ * The database is the durable copy of the catalog; the service loads it whole at startup and
+ * reads reviews per movie, through the index on movie_id. All queries are prepared statements
+ * on connections from the pooled {@link DataSource}. An empty database is seeded from another
+ * repository, normally the bundled JSON catalog.
+ *
+ * The catalog version is a sequence in the one-row catalog_version table. It starts at 0 when
+ * the database is created, and each write advances it in the same transaction as the data. A
+ * version that isn't ahead of the stored one fails the write, so versions are never handed out
+ * twice and never go back.
+ */
+public class JdbcMovieRepository implements MovieRepository {
+    private static final Logger logger = LogManager.getLogger(JdbcMovieRepository.class);
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS movies ("
+            + "id BIGINT PRIMARY KEY, "
+            + "movie_name VARCHAR(200) NOT NULL, "
+            + "director VARCHAR(200) NOT NULL, "
+            + "release_year INT NOT NULL, "
+            + "genre VARCHAR(200) NOT NULL, "
+            + "description VARCHAR(4000) NOT NULL, "
+            + "duration INT NOT NULL, "
+            + "imdb_rating DOUBLE NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS reviews ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "movie_id BIGINT NOT NULL REFERENCES movies(id) ON DELETE CASCADE, "
+            + "user_name VARCHAR(200) NOT NULL, "
+            + "avatar_emoji VARCHAR(32) NOT NULL, "
+            + "rating DOUBLE NOT NULL, "
+            + "comment VARCHAR(4000) NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_reviews_movie_id ON reviews(movie_id)",
+        "CREATE TABLE IF NOT EXISTS catalog_version ("
+            + "id INT PRIMARY KEY, "
+            + "version BIGINT NOT NULL)"
+    };
+
+    private static final String MOVIE_COLUMNS =
+        "m.id, m.movie_name, m.director, m.release_year, m.genre, m.description, m.duration, m.imdb_rating";
+    private static final String SELECT_ALL = "SELECT " + MOVIE_COLUMNS + " FROM movies m ORDER BY m.id";
+    private static final String SELECT_REVIEWS =
+        "SELECT user_name, avatar_emoji, rating, comment FROM reviews WHERE movie_id = ? ORDER BY id";
+    private static final String COUNT_MOVIES = "SELECT COUNT(*) FROM movies";
+    private static final String INSERT_MOVIE = "INSERT INTO movies "
+        + "(id, movie_name, director, release_year, genre, description, duration, imdb_rating) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_REVIEW = "INSERT INTO reviews "
+        + "(movie_id, user_name, avatar_emoji, rating, comment) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_MOVIE = "MERGE INTO movies "
+        + "(id, movie_name, director, release_year, genre, description, duration, imdb_rating) "
+        + "KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_MOVIE = "DELETE FROM movies WHERE id = ?";
+    private static final String SELECT_VERSION = "SELECT version FROM catalog_version WHERE id = 1";
+    private static final String INSERT_VERSION = "INSERT INTO catalog_version (id, version) VALUES (1, ?)";
+    private static final String ADVANCE_VERSION =
+        "UPDATE catalog_version SET version = ? WHERE id = 1 AND version < ?";
+
+    private final DataSource dataSource;
+
+    /**
+     * @param dataSource Pooled data source for the catalog database
+     * @param seed Repository to copy the catalog from if the database is empty
+     */
+    public JdbcMovieRepository(DataSource dataSource, MovieRepository seed) {
+        this.dataSource = dataSource;
+        try {
+            createSchema();
+            if (countMovies() == 0) {
+                importFrom(seed);
+            }
+            if (selectVersion() == null) {
+                insertVersion(0);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to initialize movie database: " + e.getMessage(), e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+    }
+
+    private long countMovies() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(COUNT_MOVIES);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private Long selectVersion() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_VERSION);
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    private void insertVersion(long version) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_VERSION)) {
+            statement.setLong(1, version);
+            statement.executeUpdate();
+        }
+        logger.info("Started catalog version sequence at {}", version);
+    }
+
+    private void importFrom(MovieRepository seed) throws SQLException {
+        List<Movie> movies = seed.findAllMovies();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertMovie = connection.prepareStatement(INSERT_MOVIE);
+                 PreparedStatement insertReview = connection.prepareStatement(INSERT_REVIEW)) {
+                for (Movie movie : movies) {
+                    bindMovie(insertMovie, movie);
+                    insertMovie.addBatch();
+                    for (Review review : seed.findReviewsForMovie(movie.getId())) {
+                        insertReview.setLong(1, movie.getId());
+                        insertReview.setString(2, review.getUserName());
+                        insertReview.setString(3, review.getAvatarEmoji());
+                        insertReview.setDouble(4, review.getRating());
+                        insertReview.setString(5, review.getComment());
+                        insertReview.addBatch();
+                    }
+                }
+                insertMovie.executeBatch();
+                insertReview.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        logger.info("Seeded movie database with {} movies", movies.size());
+    }
+
+    private static void bindMovie(PreparedStatement statement, Movie movie) throws SQLException {
+        statement.setLong(1, movie.getId());
+        statement.setString(2, movie.getMovieName());
+        statement.setString(3, movie.getDirector());
+        statement.setInt(4, movie.getYear());
+        statement.setString(5, movie.getGenre());
+        statement.setString(6, movie.getDescription());
+        statement.setInt(7, movie.getDuration());
+        statement.setDouble(8, movie.getImdbRating());
+    }
+
+    @Override
+    public List<Movie> findAllMovies() {
+        return queryMovies(SELECT_ALL);
+    }
+
+    @Override
+    public List<Review> findReviewsForMovie(long movieId) {
+        List<Review> reviews = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_REVIEWS)) {
+            statement.setLong(1, movieId);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    reviews.add(new Review(
+                        rs.getString("user_name"),
+                        rs.getString("avatar_emoji"),
+                        rs.getDouble("rating"),
+                        rs.getString("comment")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load reviews for movie " + movieId + ": " + e.getMessage(), e);
+        }
+        return reviews;
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        try {
+            Long version = selectVersion();
+            if (version == null) {
+                throw new IllegalStateException("Movie database has no catalog version");
+            }
+            return OptionalLong.of(version);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read catalog version: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void saveMovie(Movie movie, long version) {
+        write("save movie " + movie.getId(), version, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_MOVIE)) {
+                bindMovie(statement, movie);
+                statement.executeUpdate();
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteMovie(long movieId, long version) {
+        return write("delete movie " + movieId, version, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_MOVIE)) {
+                statement.setLong(1, movieId);
+                return statement.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public void addReview(long movieId, Review review, long version) {
+        write("add review for movie " + movieId, version, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_REVIEW)) {
+                statement.setLong(1, movieId);
+                statement.setString(2, review.getUserName());
+                statement.setString(3, review.getAvatarEmoji());
+                statement.setDouble(4, review.getRating());
+                statement.setString(5, review.getComment());
+                statement.executeUpdate();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Runs a write and, if it changed anything, advances the catalog version, in one transaction
+     *
+     * @return whether the write changed anything
+     */
+    private boolean write(String what, long version, Write write) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                boolean changed = write.apply(connection);
+                if (changed) {
+                    advanceVersion(connection, version);
+                }
+                connection.commit();
+                return changed;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to " + what + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void advanceVersion(Connection connection, long version) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(ADVANCE_VERSION)) {
+            statement.setLong(1, version);
+            statement.setLong(2, version);
+            if (statement.executeUpdate() == 0) {
+                throw new IllegalStateException("Catalog version " + version + " is not ahead of the stored one");
+            }
+        }
+    }
+
+    /**
+     * One write within a transaction
+     */
+    private interface Write {
+        boolean apply(Connection connection) throws SQLException;
+    }
+
+    private List<Movie> queryMovies(String sql) {
+        List<Movie> movies = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    movies.add(new Movie(
+                        rs.getLong("id"),
+                        rs.getString("movie_name"),
+                        rs.getString("director"),
+                        rs.getInt("release_year"),
+                        rs.getString("genre"),
+                        rs.getString("description"),
+                        rs.getInt("duration"),
+                        rs.getDouble("imdb_rating")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to query movies: " + e.getMessage(), e);
+        }
+        return movies;
+    }
+}
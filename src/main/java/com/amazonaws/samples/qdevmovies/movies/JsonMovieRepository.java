@@ -0,0 +1,148 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Scanner;
+
+/**
+ * Movie repository backed by the bundled movies.json and mock-reviews.json classpath resources.
+ *
+ * Movies are parsed again on every {@link #findAllMovies()}, which {@link MovieService} calls
+ * once at startup, so the only copy of the catalog on the heap is the service's encoded one.
+ * Reviews are parsed once and served from memory, as they are read per movie on every details page.
+ *
+ * The bundled files can't be written, so this backend is read-only and has no catalog version.
+ */
+public class JsonMovieRepository implements MovieRepository {
+    private static final Logger logger = LogManager.getLogger(JsonMovieRepository.class);
+
+    private final String moviesResource;
+    private final Map<Long, List<Review>> reviewsByMovie;
+
+    public JsonMovieRepository() {
+        this("movies.json", "mock-reviews.json");
+    }
+
+    public JsonMovieRepository(String moviesResource, String reviewsResource) {
+        this.moviesResource = moviesResource;
+        this.reviewsByMovie = loadReviewsFromJson(reviewsResource);
+    }
+
+    private List<Movie> loadMoviesFromJson(String resource) {
+        List<Movie> movieList = new ArrayList<>();
+        try {
+            String jsonContent = readResource(resource);
+            if (jsonContent != null) {
+                JSONArray moviesArray = new JSONArray(jsonContent);
+                for (int i = 0; i < moviesArray.length(); i++) {
+                    JSONObject movieObj = moviesArray.getJSONObject(i);
+                    movieList.add(new Movie(
+                        movieObj.getLong("id"),
+                        movieObj.getString("movieName"),
+                        movieObj.getString("director"),
+                        movieObj.getInt("year"),
+                        movieObj.getString("genre"),
+                        movieObj.getString("description"),
+                        movieObj.getInt("duration"),
+                        movieObj.getDouble("imdbRating")
+                    ));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to load movies from JSON: {}", e.getMessage());
+        }
+        return movieList;
+    }
+
+    private Map<Long, List<Review>> loadReviewsFromJson(String resource) {
+        Map<Long, List<Review>> reviews = new HashMap<>();
+        try {
+            String jsonContent = readResource(resource);
+            if (jsonContent != null) {
+                JSONObject reviewsData = new JSONObject(jsonContent);
+                Iterator<String> movieIds = reviewsData.keys();
+                while (movieIds.hasNext()) {
+                    String movieId = movieIds.next();
+                    JSONArray movieReviews = reviewsData.getJSONArray(movieId);
+                    List<Review> reviewList = new ArrayList<>();
+                    for (int i = 0; i < movieReviews.length(); i++) {
+                        JSONObject reviewObj = movieReviews.getJSONObject(i);
+                        reviewList.add(new Review(
+                            reviewObj.getString("userName"),
+                            reviewObj.getString("avatarEmoji"),
+                            reviewObj.getDouble("rating"),
+                            reviewObj.getString("comment")
+                        ));
+                    }
+                    reviews.put(Long.parseLong(movieId), Collections.unmodifiableList(reviewList));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to load reviews from JSON: {}", e.getMessage());
+        }
+        return reviews;
+    }
+
+    private String readResource(String resource) throws Exception {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                logger.warn("Resource {} not found on the classpath", resource);
+                return null;
+            }
+            Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
+            String jsonContent = scanner.useDelimiter("\\A").next();
+            scanner.close();
+            return jsonContent;
+        }
+    }
+
+    @Override
+    public List<Movie> findAllMovies() {
+        List<Movie> movies = loadMoviesFromJson(moviesResource);
+        movies.sort(Comparator.comparingLong(Movie::getId));
+        return movies;
+    }
+
+    @Override
+    public List<Review> findReviewsForMovie(long movieId) {
+        return reviewsByMovie.getOrDefault(movieId, Collections.<Review>emptyList());
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public void saveMovie(Movie movie, long version) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean deleteMovie(long movieId, long version) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addReview(long movieId, Review review, long version) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException(
+            "The bundled JSON catalog is read-only; set movies.repository.type=jdbc to make changes");
+    }
+}
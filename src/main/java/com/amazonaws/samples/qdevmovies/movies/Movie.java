@@ -1,7 +1,10 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import com.amazonaws.samples.qdevmovies.utils.BlockCompressedText;
+import com.amazonaws.samples.qdevmovies.utils.MovieIconRegistry;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+@JsonSerialize(using = MovieJsonSerializer.class)
 public class Movie {
 
     private final long id;
@@ -10,18 +13,73 @@ public class Movie {
     private final int year;
     private final String genre;
     private final String description;
+    private final BlockCompressedText descriptionBlocks;
+    private final int descriptionIndex;
     private final int duration;
     private final double imdbRating;
+    private final String icon;
+    private final JsonFragment jsonFragment;
 
+    /**
+     * Creates a movie with its icon resolved from the default icon rules. The catalog resolves
+     * it again with the configured registry when the movie is loaded.
+     */
     public Movie(long id, String movieName, String director, int year, String genre, String description, int duration, double imdbRating) {
+        this(id, movieName, director, year, genre, description, duration, imdbRating,
+                MovieIconRegistry.getDefault().resolve(movieName, genre));
+    }
+
+    public Movie(long id, String movieName, String director, int year, String genre, String description, int duration, double imdbRating, String icon) {
         this.id = id;
         this.movieName = movieName;
         this.director = director;
         this.year = year;
         this.genre = genre;
         this.description = description;
+        this.descriptionBlocks = null;
+        this.descriptionIndex = -1;
         this.duration = duration;
         this.imdbRating = imdbRating;
+        this.icon = icon;
+        this.jsonFragment = null;
+    }
+
+    /**
+     * Copy of a movie carrying its pre-encoded JSON
+     */
+    private Movie(Movie movie, JsonFragment jsonFragment) {
+        this.id = movie.id;
+        this.movieName = movie.movieName;
+        this.director = movie.director;
+        this.year = movie.year;
+        this.genre = movie.genre;
+        this.description = movie.description;
+        this.descriptionBlocks = movie.descriptionBlocks;
+        this.descriptionIndex = movie.descriptionIndex;
+        this.duration = movie.duration;
+        this.imdbRating = movie.imdbRating;
+        this.icon = movie.icon;
+        this.jsonFragment = jsonFragment;
+    }
+
+    /**
+     * Compact form for large catalogs: the description stays block-compressed until it is read,
+     * and no JSON fragment is cached, since it would hold the description uncompressed.
+     */
+    Movie(long id, String movieName, String director, int year, String genre, BlockCompressedText descriptionBlocks,
+          int descriptionIndex, int duration, double imdbRating, String icon) {
+        this.id = id;
+        this.movieName = movieName;
+        this.director = director;
+        this.year = year;
+        this.genre = genre;
+        this.description = null;
+        this.descriptionBlocks = descriptionBlocks;
+        this.descriptionIndex = descriptionIndex;
+        this.duration = duration;
+        this.imdbRating = imdbRating;
+        this.icon = icon;
+        this.jsonFragment = null;
     }
 
     public long getId() {
@@ -44,8 +102,11 @@ public class Movie {
         return this.genre;
     }
 
+    /**
+     * @return the description, inflated from its compressed block if the movie is in compact form
+     */
     public String getDescription() {
-        return this.description;
+        return this.description != null ? this.description : this.descriptionBlocks.get(this.descriptionIndex);
     }
 
     public int getDuration() {
@@ -56,7 +117,33 @@ public class Movie {
         return this.imdbRating;
     }
 
+    /**
+     * @return icon resolved once when the movie was loaded into the catalog
+     */
     public String getIcon() {
-        return MovieIconUtils.getMovieIcon(this.movieName);
+        return this.icon;
+    }
+
+    /**
+     * @return this movie's JSON encoding, computed once when the catalog loaded it, or null if it
+     *         was built elsewhere or is in compact form
+     */
+    JsonFragment getJsonFragment() {
+        return this.jsonFragment;
+    }
+
+    /**
+     * @param jsonFragment This movie's JSON encoding
+     * @return a copy of this movie that serializes from the fragment
+     */
+    Movie withJsonFragment(JsonFragment jsonFragment) {
+        return new Movie(this, jsonFragment);
+    }
+
+    /**
+     * @return the shared block store holding the description, or null if it is held as a plain string
+     */
+    BlockCompressedText getDescriptionBlocks() {
+        return this.descriptionBlocks;
     }
 }
@@ -0,0 +1,114 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.BlockCompressedText;
+import com.amazonaws.samples.qdevmovies.utils.MovieIconRegistry;
+import com.amazonaws.samples.qdevmovies.utils.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Re-encodes movies from the repository for the catalog and a smaller heap footprint.
+ *
+ * Each movie's icon is resolved here, once, from the icon registry. Director, genre and icon
+ * go through a dictionary, so each distinct value is held once however many movies share it.
+ * The movie's JSON is then encoded once, from the finished movie, for search responses to copy.
+ * Optionally, descriptions of a bulk load are moved into a block-compressed store and
+ * inflated only when read, typically for the details page; those movies carry no JSON, as it
+ * would hold the description uncompressed.
+ *
+ * The dictionaries are kept for later single-movie changes, and rebuilt from the live catalog
+ * whenever it is compacted, so values no movie uses any more are dropped. Not thread-safe;
+ * callers serialize their encodes.
+ */
+final class MovieCatalogEncoder {
+
+    private final MovieIconRegistry iconRegistry;
+    private final boolean compressDescriptions;
+    private StringDictionary directors = new StringDictionary();
+    private StringDictionary genres = new StringDictionary();
+    private StringDictionary icons = new StringDictionary();
+
+    /**
+     * @param iconRegistry Rules the icons are resolved with
+     * @param compressDescriptions Whether to block-compress descriptions on bulk loads (compact form)
+     */
+    MovieCatalogEncoder(MovieIconRegistry iconRegistry, boolean compressDescriptions) {
+        this.iconRegistry = iconRegistry;
+        this.compressDescriptions = compressDescriptions;
+    }
+
+    /**
+     * @param movies Catalog as loaded from the repository
+     * @return equivalent movies with their icons resolved, in the same order
+     */
+    List<Movie> encode(List<Movie> movies) {
+        List<Movie> encoded = new ArrayList<>(movies.size());
+        if (!compressDescriptions) {
+            for (Movie movie : movies) {
+                encoded.add(encode(movie));
+            }
+            return encoded;
+        }
+
+        BlockCompressedText.Builder descriptions = BlockCompressedText.builder();
+        int[] descriptionIndexes = new int[movies.size()];
+        for (int i = 0; i < movies.size(); i++) {
+            descriptionIndexes[i] = descriptions.add(movies.get(i).getDescription());
+        }
+        BlockCompressedText descriptionBlocks = descriptions.build();
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            encoded.add(new Movie(movie.getId(), movie.getMovieName(), directors.canonical(movie.getDirector()),
+                    movie.getYear(), genres.canonical(movie.getGenre()), descriptionBlocks, descriptionIndexes[i],
+                    movie.getDuration(), movie.getImdbRating(), resolveIcon(movie)));
+        }
+        return encoded;
+    }
+
+    /**
+     * Encodes a single movie, such as one changed after the catalog was loaded. Its description
+     * stays a plain string, since a block of one would not compress.
+     *
+     * @param movie Movie as written to the repository
+     * @return the equivalent movie with its icon resolved and its JSON encoded
+     */
+    Movie encode(Movie movie) {
+        Movie encoded = new Movie(movie.getId(), movie.getMovieName(), directors.canonical(movie.getDirector()),
+                movie.getYear(), genres.canonical(movie.getGenre()), movie.getDescription(),
+                movie.getDuration(), movie.getImdbRating(), resolveIcon(movie));
+        return encoded.withJsonFragment(MovieJsonSerializer.encode(encoded));
+    }
+
+    /**
+     * Replaces the dictionaries with ones holding only the given movies' values. The movies'
+     * own instances are kept, so they stay shared with later encodes.
+     *
+     * @param movies Every movie left in the catalog, already encoded
+     */
+    void retainOnly(Collection<Movie> movies) {
+        StringDictionary liveDirectors = new StringDictionary();
+        StringDictionary liveGenres = new StringDictionary();
+        StringDictionary liveIcons = new StringDictionary();
+        for (Movie movie : movies) {
+            liveDirectors.canonical(movie.getDirector());
+            liveGenres.canonical(movie.getGenre());
+            liveIcons.canonical(movie.getIcon());
+        }
+        directors = liveDirectors;
+        genres = liveGenres;
+        icons = liveIcons;
+    }
+
+    /**
+     * @return number of distinct directors, genres and icons held
+     */
+    int getDictionarySize() {
+        return directors.size() + genres.size() + icons.size();
+    }
+
+    private String resolveIcon(Movie movie) {
+        return icons.canonical(iconRegistry.resolve(movie.getMovieName(), movie.getGenre()));
+    }
+}
@@ -0,0 +1,197 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Builds the model for a movie details page within a fixed latency budget.
+ *
+ * Once the movie is known, reviews and similar movies are fetched concurrently on a small
+ * bounded pool while the request thread resolves the icon. The request then waits for
+ * them until the budget runs out. A part that misses the deadline, fails, or can't be queued
+ * because the pool is saturated is left out of the page instead of holding it up. Missing
+ * reviews are flagged so the page can say so. Each part is still timed as a
+ * {@link RequestTiming} phase, begun on the request thread so it lands in that request's
+ * timing breakdown even though it runs elsewhere.
+ */
+@Component
+public class MovieDetailsComposer {
+    private static final Logger logger = LogManager.getLogger(MovieDetailsComposer.class);
+
+    /**
+     * Why a part was left out of the page
+     */
+    public enum Degradation { TIMEOUT, REJECTED, ERROR }
+
+    static final String REVIEWS = "reviews";
+    static final String SIMILAR = "similar";
+
+    private final ReviewService reviewService;
+    private final RecommendationService recommendationService;
+    private final ExecutorService executor;
+    private final long budgetNanos;
+    private final Map<String, Map<Degradation, LongAdder>> degradations = new HashMap<>();
+
+    /**
+     * @param threads Worker threads fetching page parts
+     * @param queueCapacity Parts that may wait for a worker before new ones are turned away
+     * @param budget How long a details request waits for its parts in total
+     */
+    @Autowired
+    public MovieDetailsComposer(ReviewService reviewService, RecommendationService recommendationService,
+                                @Value("${movies.details.threads:8}") int threads,
+                                @Value("${movies.details.queue-capacity:64}") int queueCapacity,
+                                @Value("${movies.details.budget:250ms}") Duration budget) {
+        this(reviewService, recommendationService, newExecutor(threads, queueCapacity), budget);
+    }
+
+    MovieDetailsComposer(ReviewService reviewService, RecommendationService recommendationService,
+                         ExecutorService executor, Duration budget) {
+        this.reviewService = reviewService;
+        this.recommendationService = recommendationService;
+        this.executor = executor;
+        this.budgetNanos = budget.toNanos();
+        for (String part : new String[] {REVIEWS, SIMILAR}) {
+            Map<Degradation, LongAdder> counts = new HashMap<>();
+            for (Degradation reason : Degradation.values()) {
+                counts.put(reason, new LongAdder());
+            }
+            degradations.put(part, counts);
+        }
+    }
+
+    /**
+     * @param movie Movie the page is about
+     * @return model attributes {@code movieIcon}, {@code allReviews}, {@code reviewsUnavailable}
+     *         and {@code similarMovies}
+     */
+    public Map<String, Object> compose(Movie movie) {
+        long deadline = System.nanoTime() + budgetNanos;
+        long movieId = movie.getId();
+
+        Part<List<Review>> reviews = submit(REVIEWS, movieId,
+            () -> reviewService.getReviewsForMovie(movieId), List::size);
+        Part<List<Movie>> similar = submit(SIMILAR, movieId,
+            () -> recommendationService.getSimilarMovies(movieId, recommendationService.getMaxSimilarMovies()),
+            List::size);
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("movieIcon", RequestTiming.phase("icon", movieId, movie::getIcon, icon -> 1));
+
+        List<Review> allReviews = reviews.await(deadline);
+        attributes.put("allReviews", allReviews == null ? Collections.emptyList() : allReviews);
+        attributes.put("reviewsUnavailable", allReviews == null);
+        List<Movie> similarMovies = similar.await(deadline);
+        attributes.put("similarMovies", similarMovies == null ? Collections.emptyList() : similarMovies);
+        return attributes;
+    }
+
+    /**
+     * @return how often a part was left out of the page, and why
+     */
+    public long getDegradedCount(String part, Degradation reason) {
+        return degradations.get(part).get(reason).sum();
+    }
+
+    public Duration getBudget() {
+        return Duration.ofNanos(budgetNanos);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> Part<T> submit(String name, long movieId, Supplier<T> work, ToIntFunction<T> itemCount) {
+        RequestTiming.Phase phase = RequestTiming.begin(name, movieId);
+        try {
+            return new Part<>(name, movieId, phase, executor.submit(() -> {
+                T result = work.get();
+                phase.end(itemCount.applyAsInt(result));
+                return result;
+            }));
+        } catch (RejectedExecutionException e) {
+            return new Part<>(name, movieId, phase, null);
+        }
+    }
+
+    private void degrade(String part, long movieId, Degradation reason, RequestTiming.Phase phase, Throwable cause) {
+        degradations.get(part).get(reason).increment();
+        phase.abandon(reason.name().toLowerCase(Locale.ROOT));
+        logger.warn("Details for movie {} rendered without {}: {}", movieId, part, reason, cause);
+    }
+
+    private static ExecutorService newExecutor(int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "movie-details-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * One part of the page, in flight on the pool (or turned away by it)
+     */
+    private final class Part<T> {
+        private final String name;
+        private final long movieId;
+        private final RequestTiming.Phase phase;
+        private final Future<T> future;
+
+        Part(String name, long movieId, RequestTiming.Phase phase, Future<T> future) {
+            this.name = name;
+            this.movieId = movieId;
+            this.phase = phase;
+            this.future = future;
+        }
+
+        /**
+         * @return the part's result, or null if it can't be had by the deadline
+         */
+        T await(long deadline) {
+            if (future == null) {
+                degrade(name, movieId, Degradation.REJECTED, phase, null);
+                return null;
+            }
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Abandon before cancelling, so the interrupted worker can't end the phase as a success
+                degrade(name, movieId, Degradation.TIMEOUT, phase, null);
+                future.cancel(true);
+            } catch (ExecutionException e) {
+                degrade(name, movieId, Degradation.ERROR, phase, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                degrade(name, movieId, Degradation.TIMEOUT, phase, null);
+                future.cancel(true);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Publishes details pages that missed a part, e.g. reviews timing out, at /actuator/metrics/movies.details.degraded
+ */
+@Component
+public class MovieDetailsMetrics implements MeterBinder {
+
+    @Autowired
+    private MovieDetailsComposer detailsComposer;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String part : new String[] {MovieDetailsComposer.REVIEWS, MovieDetailsComposer.SIMILAR}) {
+            for (MovieDetailsComposer.Degradation reason : MovieDetailsComposer.Degradation.values()) {
+                FunctionCounter.builder("movies.details.degraded", detailsComposer,
+                                composer -> composer.getDegradedCount(part, reason))
+                        .description("Details pages rendered without a part, by part and reason")
+                        .tag("part", part)
+                        .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+            }
+        }
+    }
+}
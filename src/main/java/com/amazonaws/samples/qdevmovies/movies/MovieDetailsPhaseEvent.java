@@ -0,0 +1,29 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one phase of serving a movie details page
+ */
+@Name("com.amazonaws.samples.qdevmovies.DetailsPhase")
+@Label("Movie Details Phase")
+@Category({"Movies", "Details"})
+@Description("Time spent in one phase of a /movies/{id}/details request")
+@StackTrace(false)
+class MovieDetailsPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Movie ID")
+    long movieId;
+
+    @Label("Items")
+    @Description("Number of items the phase produced, e.g. reviews loaded, or -1 if the request stopped waiting for it")
+    int itemCount;
+}
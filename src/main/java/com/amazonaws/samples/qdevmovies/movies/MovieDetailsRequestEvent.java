@@ -0,0 +1,28 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a whole movie details request, carrying its phase breakdown
+ */
+@Name("com.amazonaws.samples.qdevmovies.DetailsRequest")
+@Label("Movie Details Request")
+@Category({"Movies", "Details"})
+@Description("A /movies/{id}/details request, with its per-phase Server-Timing breakdown")
+@StackTrace(false)
+class MovieDetailsRequestEvent extends Event {
+
+    @Label("URI")
+    String uri;
+
+    @Label("Status")
+    int status;
+
+    @Label("Server Timing")
+    String serverTiming;
+}
@@ -0,0 +1,19 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.MovieIconRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Loads the icon rules the catalog resolves movie icons with, from {@code movies.icons.resource}
+ */
+@Configuration
+public class MovieIconConfig {
+
+    @Bean
+    public MovieIconRegistry movieIconRegistry(
+            @Value("${movies.icons.resource:" + MovieIconRegistry.DEFAULT_RESOURCE + "}") String resource) {
+        return MovieIconRegistry.loadFromClasspath(resource);
+    }
+}
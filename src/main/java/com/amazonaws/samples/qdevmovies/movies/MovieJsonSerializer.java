@@ -0,0 +1,81 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Jackson serializer that writes a movie's pre-encoded JSON fragment instead of
+ * reflecting over its getters on every response.
+ *
+ * Plain JSON written as UTF-8 bytes, as HTTP responses are, gets the cached bytes copied
+ * in as a raw value. Any other generator (pretty printing, character output such as
+ * {@code writeValueAsString}, or a non-JSON data format) falls back to writing the same
+ * fields one by one, so the wire shape is identical either way. Movies in compact
+ * form carry no fragment and are always written field by field.
+ */
+public class MovieJsonSerializer extends StdSerializer<Movie> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public MovieJsonSerializer() {
+        super(Movie.class);
+    }
+
+    /**
+     * Encodes a movie into the JSON fragment cached on it.
+     *
+     * @param movie Fully constructed movie
+     * @return UTF-8 encoded JSON object for the movie
+     */
+    static JsonFragment encode(Movie movie) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            writeFields(movie, gen);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode movie " + movie.getId(), e);
+        }
+        return new JsonFragment(out.toByteArray());
+    }
+
+    @Override
+    public void serialize(Movie movie, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        write(movie, gen);
+    }
+
+    /**
+     * Writes a movie, from its fragment where the generator allows it.
+     *
+     * @param movie Movie to write
+     * @param gen Generator positioned where a value is expected
+     */
+    static void write(Movie movie, JsonGenerator gen) throws IOException {
+        JsonFragment fragment = movie.getJsonFragment();
+        if (fragment != null && gen instanceof UTF8JsonGenerator && gen.getPrettyPrinter() == null) {
+            gen.writeRawValue(fragment);
+        } else {
+            writeFields(movie, gen);
+        }
+    }
+
+    private static void writeFields(Movie movie, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("id", movie.getId());
+        gen.writeStringField("movieName", movie.getMovieName());
+        gen.writeStringField("director", movie.getDirector());
+        gen.writeNumberField("year", movie.getYear());
+        gen.writeStringField("genre", movie.getGenre());
+        gen.writeStringField("description", movie.getDescription());
+        gen.writeNumberField("duration", movie.getDuration());
+        gen.writeNumberField("imdbRating", movie.getImdbRating());
+        gen.writeStringField("icon", movie.getIcon());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,225 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Top-rated movies per genre, per decade and per genre and decade, by IMDb and by audience rating.
+ *
+ * Every board keeps all of its movies in rating order, so a movie can be moved or dropped in
+ * O(log n) when it changes. After each change, the first {@code depth} entries of the boards it
+ * touched are copied into read-only lists, and readers only ever take a prefix of those.
+ * A read therefore costs the same however large the catalog or the board is.
+ * Genres are the {@code /}-separated parts of a movie's genre, matched case-insensitively.
+ * Movies without reviews have no audience rating and appear only on the IMDb boards.
+ */
+public final class MovieLeaderboards {
+
+    /**
+     * What the boards rank by
+     */
+    public enum Metric { IMDB, AUDIENCE }
+
+    private static final String ANY = "*";
+    private static final Comparator<Entry> RANKING = Comparator.comparingDouble(Entry::getScore).reversed()
+            .thenComparingLong(entry -> entry.getMovie().getId());
+
+    private final int depth;
+    private final Map<Long, Member> members = new HashMap<>();
+    private final Map<String, TreeSet<Entry>> boards = new HashMap<>();
+    private final Map<String, List<Entry>> tops = new ConcurrentHashMap<>();
+
+    /**
+     * @param depth How many leaders each board serves
+     */
+    public MovieLeaderboards(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Leaderboard depth must be positive");
+        }
+        this.depth = depth;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Places a new movie on its boards, or moves a changed one.
+     *
+     * @param movie Movie as it is now
+     * @param audienceRating Average review rating, or empty if the movie has no reviews
+     */
+    public synchronized void put(Movie movie, OptionalDouble audienceRating) {
+        Set<String> touched = new HashSet<>();
+        Member old = members.remove(movie.getId());
+        if (old != null) {
+            unplace(old, touched);
+        }
+        Member member = new Member(movie, audienceRating);
+        members.put(movie.getId(), member);
+        place(member, touched);
+        publish(touched);
+    }
+
+    /**
+     * Takes a movie off all its boards.
+     */
+    public synchronized void remove(long movieId) {
+        Member old = members.remove(movieId);
+        if (old != null) {
+            Set<String> touched = new HashSet<>();
+            unplace(old, touched);
+            publish(touched);
+        }
+    }
+
+    /**
+     * @return the rating the movie is ranked by on the audience boards, or empty if it has none
+     */
+    public synchronized OptionalDouble getAudienceRating(long movieId) {
+        Member member = members.get(movieId);
+        return member == null || member.audience == null
+                ? OptionalDouble.empty() : OptionalDouble.of(member.audience.getScore());
+    }
+
+    /**
+     * @param metric What to rank by
+     * @param genre Genre to restrict to, or null for all genres
+     * @param decade Decade to restrict to, as any year in it, or null for all decades
+     * @param n Number of leaders wanted, capped at the depth
+     * @return the highest rated movies, best first
+     */
+    public List<Entry> top(Metric metric, String genre, Integer decade, int n) {
+        List<Entry> top = tops.get(boardKey(metric, normalizeGenre(genre), decade == null ? ANY : decadeOf(decade)));
+        if (top == null) {
+            return Collections.emptyList();
+        }
+        return top.subList(0, Math.min(Math.max(n, 0), top.size()));
+    }
+
+    private void place(Member member, Set<String> touched) {
+        for (String key : member.keys) {
+            add(boardKey(Metric.IMDB, key), member.imdb, touched);
+            if (member.audience != null) {
+                add(boardKey(Metric.AUDIENCE, key), member.audience, touched);
+            }
+        }
+    }
+
+    private void unplace(Member member, Set<String> touched) {
+        for (String key : member.keys) {
+            remove(boardKey(Metric.IMDB, key), member.imdb, touched);
+            if (member.audience != null) {
+                remove(boardKey(Metric.AUDIENCE, key), member.audience, touched);
+            }
+        }
+    }
+
+    private void add(String board, Entry entry, Set<String> touched) {
+        boards.computeIfAbsent(board, key -> new TreeSet<>(RANKING)).add(entry);
+        touched.add(board);
+    }
+
+    private void remove(String board, Entry entry, Set<String> touched) {
+        TreeSet<Entry> ranked = boards.get(board);
+        if (ranked != null && ranked.remove(entry)) {
+            touched.add(board);
+        }
+    }
+
+    /**
+     * Republishes the leaders of each changed board
+     */
+    private void publish(Set<String> touched) {
+        for (String board : touched) {
+            TreeSet<Entry> ranked = boards.get(board);
+            if (ranked == null || ranked.isEmpty()) {
+                boards.remove(board);
+                tops.remove(board);
+                continue;
+            }
+            List<Entry> leaders = new ArrayList<>(Math.min(depth, ranked.size()));
+            Iterator<Entry> best = ranked.iterator();
+            while (best.hasNext() && leaders.size() < depth) {
+                leaders.add(best.next());
+            }
+            tops.put(board, Collections.unmodifiableList(leaders));
+        }
+    }
+
+    private static String boardKey(Metric metric, String genre, String decade) {
+        return boardKey(metric, genre + '|' + decade);
+    }
+
+    private static String boardKey(Metric metric, String key) {
+        return metric.name() + '|' + key;
+    }
+
+    private static String normalizeGenre(String genre) {
+        return genre == null || genre.trim().isEmpty() ? ANY : genre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String decadeOf(int year) {
+        return Integer.toString(Math.floorDiv(year, 10) * 10);
+    }
+
+    /**
+     * A movie and the score it is ranked by on one board
+     */
+    public static final class Entry {
+        private final Movie movie;
+        private final double score;
+
+        Entry(Movie movie, double score) {
+            this.movie = movie;
+            this.score = score;
+        }
+
+        public Movie getMovie() {
+            return movie;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * A movie's entries and the genre|decade keys of every board it is on
+     */
+    private static final class Member {
+        final Entry imdb;
+        final Entry audience;
+        final List<String> keys = new ArrayList<>();
+
+        Member(Movie movie, OptionalDouble audienceRating) {
+            this.imdb = new Entry(movie, movie.getImdbRating());
+            this.audience = audienceRating.isPresent() ? new Entry(movie, audienceRating.getAsDouble()) : null;
+
+            Set<String> genres = new HashSet<>();
+            genres.add(ANY);
+            if (movie.getGenre() != null) {
+                for (String genre : movie.getGenre().split("/")) {
+                    if (!genre.trim().isEmpty()) {
+                        genres.add(normalizeGenre(genre));
+                    }
+                }
+            }
+            for (String genre : genres) {
+                keys.add(genre + '|' + ANY);
+                keys.add(genre + '|' + decadeOf(movie.getYear()));
+            }
+        }
+    }
+}
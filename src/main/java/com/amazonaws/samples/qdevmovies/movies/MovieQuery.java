@@ -0,0 +1,517 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.movies.CatalogIndex.NumericField;
+import com.amazonaws.samples.qdevmovies.movies.CatalogIndex.TextField;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A parsed search expression, compiled into a plan of bitset operations over a {@link CatalogIndex}.
+ *
+ * Syntax:
+ * <pre>
+ *   query  := or
+ *   or     := and ("OR" and)*
+ *   and    := unary (["AND"] unary)*        adjacent terms are ANDed
+ *   unary  := ("NOT" | "-") unary | "(" or ")" | term
+ *   term   := field ":" value | value        a bare value matches the title
+ *   value  := word | "quoted phrase" | range
+ *   range  := min ".." max | ".." max | min ".." | (">" | ">=" | "<" | "<=") number
+ * </pre>
+ * Text fields are {@code name}, {@code director} and {@code genre} (case-insensitive partial
+ * match); numeric fields are {@code id}, {@code year}, {@code rating} and {@code duration}.
+ * For example: {@code genre:drama year:1990..1999 -director:"john director"}.
+ * Parentheses and negations nest at most {@value #MAX_NESTING} deep.
+ *
+ * A plan holds no reference to the catalog, so one plan can be cached and evaluated against
+ * any index. AND evaluates its operands from most to least selective, narrowing the candidate
+ * set as it goes and stopping once nothing is left; OR evaluates each operand only against the
+ * candidates not matched yet.
+ */
+public final class MovieQuery {
+
+    /** Deepest nesting of parentheses and negations a query may have; parsing and plans recurse per level */
+    static final int MAX_NESTING = 32;
+
+    private final String text;
+    private final Node root;
+
+    private MovieQuery(String text, Node root) {
+        this.text = text;
+        this.root = root;
+    }
+
+    /**
+     * Parses a query expression.
+     *
+     * @param query Expression to parse; blank matches every movie
+     * @return the compiled query
+     * @throws IllegalArgumentException if the expression be malformed
+     */
+    public static MovieQuery parse(String query) {
+        String trimmed = query == null ? "" : query.trim();
+        if (trimmed.isEmpty()) {
+            return new MovieQuery(trimmed, new And(Collections.<Node>emptyList()));
+        }
+        return new MovieQuery(trimmed, new Parser(trimmed).parse());
+    }
+
+    /**
+     * @return the movies matching this query, in catalog order
+     */
+    public List<Movie> execute(CatalogIndex index) {
+        return index.select(root.evaluate(index, index.all()));
+    }
+
+    /**
+     * @return estimated number of matching movies, from the index statistics
+     */
+    public long estimate(CatalogIndex index) {
+        return root.estimate(index);
+    }
+
+    /**
+     * @return the query as it was parsed
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the plan in canonical prefix form, e.g. {@code (AND genre:"drama" year:[1990..1999])}
+     */
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    /**
+     * A plan node. Evaluation returns the subset of the candidates that match and never
+     * modifies the candidates it was given.
+     */
+    private interface Node {
+        BitSet evaluate(CatalogIndex index, BitSet candidates);
+
+        long estimate(CatalogIndex index);
+    }
+
+    private static final class And implements Node {
+        private final List<Node> operands;
+
+        And(List<Node> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public BitSet evaluate(CatalogIndex index, BitSet candidates) {
+            BitSet matches = (BitSet) candidates.clone();
+            for (Node operand : bySelectivity(operands, index, true)) {
+                if (matches.isEmpty()) {
+                    break;
+                }
+                matches = operand.evaluate(index, matches);
+            }
+            return matches;
+        }
+
+        @Override
+        public long estimate(CatalogIndex index) {
+            // Assumes independent operands
+            double fraction = 1.0;
+            for (Node operand : operands) {
+                fraction *= index.size() == 0 ? 0 : (double) operand.estimate(index) / index.size();
+            }
+            return Math.round(fraction * index.size());
+        }
+
+        @Override
+        public String toString() {
+            return operands.isEmpty() ? "*" : "(AND" + join(operands) + ")";
+        }
+    }
+
+    private static final class Or implements Node {
+        private final List<Node> operands;
+
+        Or(List<Node> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public BitSet evaluate(CatalogIndex index, BitSet candidates) {
+            BitSet remaining = (BitSet) candidates.clone();
+            BitSet matches = new BitSet(index.size());
+            for (Node operand : bySelectivity(operands, index, false)) {
+                if (remaining.isEmpty()) {
+                    break;
+                }
+                BitSet hits = operand.evaluate(index, remaining);
+                matches.or(hits);
+                remaining.andNot(hits);
+            }
+            return matches;
+        }
+
+        @Override
+        public long estimate(CatalogIndex index) {
+            long sum = 0;
+            for (Node operand : operands) {
+                sum += operand.estimate(index);
+            }
+            return Math.min(sum, index.size());
+        }
+
+        @Override
+        public String toString() {
+            return "(OR" + join(operands) + ")";
+        }
+    }
+
+    private static final class Not implements Node {
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public BitSet evaluate(CatalogIndex index, BitSet candidates) {
+            BitSet matches = (BitSet) candidates.clone();
+            matches.andNot(operand.evaluate(index, candidates));
+            return matches;
+        }
+
+        @Override
+        public long estimate(CatalogIndex index) {
+            return index.size() - operand.estimate(index);
+        }
+
+        @Override
+        public String toString() {
+            return "(NOT " + operand + ")";
+        }
+    }
+
+    private static final class TextTerm implements Node {
+        private final TextField field;
+        private final String value;
+
+        TextTerm(TextField field, String value) {
+            this.field = field;
+            this.value = value.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public BitSet evaluate(CatalogIndex index, BitSet candidates) {
+            return index.matchText(field, value, candidates);
+        }
+
+        @Override
+        public long estimate(CatalogIndex index) {
+            return index.estimateText(field, value);
+        }
+
+        @Override
+        public String toString() {
+            return field.name().toLowerCase(Locale.ROOT) + ":\"" + value + "\"";
+        }
+    }
+
+    private static final class RangeTerm implements Node {
+        private final NumericField field;
+        private final double min;
+        private final double max;
+
+        RangeTerm(NumericField field, double min, double max) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public BitSet evaluate(CatalogIndex index, BitSet candidates) {
+            return index.matchRange(field, min, max, candidates);
+        }
+
+        @Override
+        public long estimate(CatalogIndex index) {
+            return index.estimateRange(field, min, max);
+        }
+
+        @Override
+        public String toString() {
+            return field.name().toLowerCase(Locale.ROOT) + ":[" + bound(min) + ".." + bound(max) + "]";
+        }
+
+        private static String bound(double value) {
+            if (Double.isInfinite(value)) {
+                return "*";
+            }
+            return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+        }
+    }
+
+    /**
+     * Orders operands by estimated match count: fewest first for AND so the candidate set
+     * shrinks fastest, most first for OR so the remaining set does.
+     */
+    private static List<Node> bySelectivity(List<Node> operands, CatalogIndex index, boolean fewestFirst) {
+        if (operands.size() < 2) {
+            return operands;
+        }
+        long[] estimates = new long[operands.size()];
+        List<Integer> order = new ArrayList<>(operands.size());
+        for (int i = 0; i < operands.size(); i++) {
+            estimates[i] = operands.get(i).estimate(index);
+            order.add(i);
+        }
+        order.sort((a, b) -> fewestFirst
+                ? Long.compare(estimates[a], estimates[b])
+                : Long.compare(estimates[b], estimates[a]));
+        List<Node> sorted = new ArrayList<>(operands.size());
+        for (int i : order) {
+            sorted.add(operands.get(i));
+        }
+        return sorted;
+    }
+
+    private static String join(List<Node> operands) {
+        StringBuilder joined = new StringBuilder();
+        for (Node operand : operands) {
+            joined.append(' ').append(operand);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Recursive-descent parser over the raw query string
+     */
+    private static final class Parser {
+        private final String input;
+        private int position;
+        private int depth;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        Node parse() {
+            Node node = parseOr();
+            skipWhitespace();
+            if (position < input.length()) {
+                throw error("Unexpected '" + input.charAt(position) + "'");
+            }
+            return node;
+        }
+
+        private Node parseOr() {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while (acceptKeyword("OR")) {
+                operands.add(parseAnd());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(operands);
+        }
+
+        private Node parseAnd() {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseUnary());
+            while (true) {
+                if (acceptKeyword("AND")) {
+                    operands.add(parseUnary());
+                } else if (startsOperand()) {
+                    operands.add(parseUnary());
+                } else {
+                    break;
+                }
+            }
+            return operands.size() == 1 ? operands.get(0) : new And(operands);
+        }
+
+        private Node parseUnary() {
+            skipWhitespace();
+            if (depth == MAX_NESTING) {
+                throw error("Query nested deeper than " + MAX_NESTING + " levels");
+            }
+            depth++;
+            try {
+                if (acceptKeyword("NOT")) {
+                    return new Not(parseUnary());
+                }
+                if (accept('-')) {
+                    return new Not(parseUnary());
+                }
+                if (accept('(')) {
+                    Node inner = parseOr();
+                    skipWhitespace();
+                    if (!accept(')')) {
+                        throw error("Missing ')'");
+                    }
+                    return inner;
+                }
+                return parseTerm();
+            } finally {
+                depth--;
+            }
+        }
+
+        private Node parseTerm() {
+            skipWhitespace();
+            if (position >= input.length()) {
+                throw error("Expected a search term");
+            }
+            if (input.charAt(position) == '"') {
+                return new TextTerm(TextField.NAME, readPhrase());
+            }
+
+            int start = position;
+            String word = readWord();
+            if (word.isEmpty()) {
+                throw error("Expected a search term");
+            }
+            if (!accept(':')) {
+                return new TextTerm(TextField.NAME, word);
+            }
+
+            String field = word.toLowerCase(Locale.ROOT);
+            String value = position < input.length() && input.charAt(position) == '"' ? readPhrase() : readWord();
+            if (value.isEmpty()) {
+                throw error("Missing value for field '" + word + "'");
+            }
+            switch (field) {
+                case "name":
+                case "title":
+                    return new TextTerm(TextField.NAME, value);
+                case "director":
+                    return new TextTerm(TextField.DIRECTOR, value);
+                case "genre":
+                    return new TextTerm(TextField.GENRE, value);
+                case "id":
+                    return range(NumericField.ID, value, start);
+                case "year":
+                    return range(NumericField.YEAR, value, start);
+                case "rating":
+                    return range(NumericField.RATING, value, start);
+                case "duration":
+                    return range(NumericField.DURATION, value, start);
+                default:
+                    position = start;
+                    throw error("Unknown field '" + word
+                            + "' (expected name, director, genre, id, year, rating or duration)");
+            }
+        }
+
+        private Node range(NumericField field, String value, int start) {
+            try {
+                if (value.startsWith(">=")) {
+                    return new RangeTerm(field, number(value.substring(2)), Double.POSITIVE_INFINITY);
+                }
+                if (value.startsWith(">")) {
+                    return new RangeTerm(field, Math.nextUp(number(value.substring(1))), Double.POSITIVE_INFINITY);
+                }
+                if (value.startsWith("<=")) {
+                    return new RangeTerm(field, Double.NEGATIVE_INFINITY, number(value.substring(2)));
+                }
+                if (value.startsWith("<")) {
+                    return new RangeTerm(field, Double.NEGATIVE_INFINITY, Math.nextDown(number(value.substring(1))));
+                }
+                int dots = value.indexOf("..");
+                if (dots < 0) {
+                    double exact = number(value);
+                    return new RangeTerm(field, exact, exact);
+                }
+                String low = value.substring(0, dots);
+                String high = value.substring(dots + 2);
+                if (low.isEmpty() && high.isEmpty()) {
+                    throw new NumberFormatException();
+                }
+                return new RangeTerm(field,
+                        low.isEmpty() ? Double.NEGATIVE_INFINITY : number(low),
+                        high.isEmpty() ? Double.POSITIVE_INFINITY : number(high));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Invalid " + field.name().toLowerCase(Locale.ROOT) + " value '" + value + "'");
+            }
+        }
+
+        private static double number(String value) {
+            double number = Double.parseDouble(value);
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new NumberFormatException(value);
+            }
+            return number;
+        }
+
+        private boolean startsOperand() {
+            skipWhitespace();
+            if (position >= input.length() || input.charAt(position) == ')') {
+                return false;
+            }
+            return !atKeyword("OR");
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            skipWhitespace();
+            if (!atKeyword(keyword)) {
+                return false;
+            }
+            position += keyword.length();
+            return true;
+        }
+
+        /**
+         * Keywords are upper-case and must stand alone, so "order" or "or" are plain terms
+         */
+        private boolean atKeyword(String keyword) {
+            int end = position + keyword.length();
+            return input.startsWith(keyword, position)
+                    && (end == input.length() || Character.isWhitespace(input.charAt(end))
+                        || input.charAt(end) == '(' || input.charAt(end) == '"');
+        }
+
+        private boolean accept(char expected) {
+            if (position < input.length() && input.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private String readWord() {
+            int start = position;
+            while (position < input.length()) {
+                char c = input.charAt(position);
+                if (Character.isWhitespace(c) || c == '(' || c == ')' || c == '"' || c == ':') {
+                    break;
+                }
+                position++;
+            }
+            return input.substring(start, position);
+        }
+
+        private String readPhrase() {
+            int start = position++;
+            int end = input.indexOf('"', position);
+            if (end < 0) {
+                position = start;
+                throw error("Unterminated quote");
+            }
+            position = end + 1;
+            return input.substring(start + 1, end);
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " in query: " + input);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Storage backend for the movie catalog and its reviews.
+ *
+ * {@link MovieService} reads the whole catalog once at startup and serves every lookup from
+ * its in-memory indexes, so the catalog must fit in the heap whichever backend is used. Reviews
+ * are read from the backend per movie. Lookups by genre and year go through {@link CatalogIndex},
+ * so backends offer no finders for them. A backend that can't be read throws rather than
+ * returning an empty result.
+ *
+ * A writable backend also holds the catalog version, which every write moves forward in the
+ * same step as the data, so a version names the same catalog contents across restarts.
+ *
+ * {@link JsonMovieRepository} serves the bundled classpath JSON and is read-only;
+ * {@link JdbcMovieRepository} keeps the catalog in an embedded SQL database.
+ * The backend is chosen with {@code movies.repository.type}.
+ */
+public interface MovieRepository {
+
+    /**
+     * Reads the whole catalog from the backend. Backends don't keep a reference to the returned
+     * list or its movies, so the catalog isn't held on the heap twice.
+     *
+     * @return every movie in the catalog, ordered by id, in a new list the caller owns
+     */
+    List<Movie> findAllMovies();
+
+    /**
+     * @param movieId Movie id
+     * @return the movie's reviews in their original order, empty if it has none
+     */
+    List<Review> findReviewsForMovie(long movieId);
+
+    /**
+     * @return version of the stored catalog, which only ever moves forward; empty if the backend
+     *         is read-only, as its catalog never changes
+     */
+    OptionalLong getCatalogVersion();
+
+    /**
+     * Stores a new or changed movie and advances the catalog version to the given one.
+     *
+     * @param version New catalog version, above the stored one
+     * @throws UnsupportedOperationException if the backend is read-only
+     */
+    void saveMovie(Movie movie, long version);
+
+    /**
+     * Deletes a movie with its reviews and, if it was there, advances the catalog version.
+     *
+     * @param version New catalog version, above the stored one
+     * @return whether the movie was there
+     * @throws UnsupportedOperationException if the backend is read-only
+     */
+    boolean deleteMovie(long movieId, long version);
+
+    /**
+     * Stores a review after the movie's existing ones and advances the catalog version.
+     *
+     * @param version New catalog version, above the stored one
+     * @throws UnsupportedOperationException if the backend is read-only
+     */
+    void addReview(long movieId, Review review, long version);
+}
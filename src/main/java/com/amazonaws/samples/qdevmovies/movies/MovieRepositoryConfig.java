@@ -0,0 +1,57 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the movie repository backend with {@code movies.repository.type}:
+ * {@code json} (default) serves the bundled classpath JSON read-only, {@code jdbc}
+ * stores the catalog in an embedded file-based H2 database behind a Hikari pool and
+ * accepts changes.
+ */
+@Configuration
+public class MovieRepositoryConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movies.repository", name = "type", havingValue = "json", matchIfMissing = true)
+    public MovieRepository jsonMovieRepository() {
+        return new JsonMovieRepository();
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "movies.repository", name = "type", havingValue = "jdbc")
+    static class JdbcBackend {
+
+        @Value("${movies.repository.jdbc.url:jdbc:h2:file:./data/movies}")
+        private String url;
+
+        @Value("${movies.repository.jdbc.username:sa}")
+        private String username;
+
+        @Value("${movies.repository.jdbc.password:}")
+        private String password;
+
+        @Value("${movies.repository.jdbc.pool-size:10}")
+        private int poolSize;
+
+        @Bean(destroyMethod = "close")
+        public HikariDataSource movieDataSource() {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("movie-catalog");
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            return new HikariDataSource(config);
+        }
+
+        @Bean
+        public MovieRepository jdbcMovieRepository(HikariDataSource movieDataSource) {
+            return new JdbcMovieRepository(movieDataSource, new JsonMovieRepository());
+        }
+    }
+}
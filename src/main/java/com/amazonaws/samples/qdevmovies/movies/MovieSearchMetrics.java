@@ -0,0 +1,34 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publishes search coalescing statistics, e.g. at /actuator/metrics/movies.search.coalescing.ratio
+ */
+@Component
+public class MovieSearchMetrics implements MeterBinder {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        SingleFlight<String, List<Movie>> searchFlight = movieService.getSearchFlight();
+        FunctionCounter.builder("movies.search.requests", searchFlight, SingleFlight::getCallCount)
+                .description("Search calls received, including coalesced duplicates")
+                .register(registry);
+        FunctionCounter.builder("movies.search.executions", searchFlight, SingleFlight::getExecutionCount)
+                .description("Searches that actually scanned the catalog")
+                .register(registry);
+        Gauge.builder("movies.search.coalescing.ratio", searchFlight, SingleFlight::getCoalescingRatio)
+                .description("Fraction of search calls served by a concurrent identical search")
+                .register(registry);
+    }
+}
@@ -0,0 +1,86 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Envelope of a search response: whether the search ran, a message for the crew, and the
+ * matching movies.
+ *
+ * Written by its own serializer rather than as a map, so each movie goes straight through
+ * {@link MovieJsonSerializer} and plain JSON responses are the envelope around the movies'
+ * pre-encoded fragments.
+ */
+@JsonSerialize(using = MovieSearchResponse.Serializer.class)
+public final class MovieSearchResponse {
+
+    private final boolean success;
+    private final String message;
+    private final List<Movie> movies;
+
+    private MovieSearchResponse(boolean success, String message, List<Movie> movies) {
+        this.success = success;
+        this.message = message;
+        this.movies = movies;
+    }
+
+    /**
+     * @param message Message describing the results
+     * @param movies Matching movies, possibly empty
+     * @return a successful response
+     */
+    public static MovieSearchResponse found(String message, List<Movie> movies) {
+        return new MovieSearchResponse(true, message, movies);
+    }
+
+    /**
+     * @param message Message describing what went wrong
+     * @return a failed response with no movies
+     */
+    public static MovieSearchResponse failed(String message) {
+        return new MovieSearchResponse(false, message, Collections.emptyList());
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Writes {@code {"success":..,"message":..,"movies":[..]}}, the same shape the endpoint
+     * has always returned.
+     */
+    public static final class Serializer extends StdSerializer<MovieSearchResponse> {
+
+        public Serializer() {
+            super(MovieSearchResponse.class);
+        }
+
+        @Override
+        public void serialize(MovieSearchResponse response, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject();
+            gen.writeBooleanField("success", response.success);
+            gen.writeStringField("message", response.message);
+            gen.writeArrayFieldStart("movies");
+            for (Movie movie : response.movies) {
+                MovieJsonSerializer.write(movie, gen);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+}
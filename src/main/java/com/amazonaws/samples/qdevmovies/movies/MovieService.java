@@ -1,78 +1,287 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.amazonaws.samples.qdevmovies.utils.MovieIconRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Scanner;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Service
 public class MovieService {
     private static final Logger logger = LogManager.getLogger(MovieService.class);
-    private final List<Movie> movies;
-    private final Map<Long, Movie> movieMap;
+    static final int DEFAULT_PARALLEL_SEARCH_THRESHOLD = 10_000;
+    static final int MAX_CACHED_QUERY_PLANS = 512;
+
+    static final int DEFAULT_CHANGELOG_CAPACITY = 10_000;
+    static final int MAX_TOP_MOVIES = 100;
+    static final double MAX_RATING = 5.0;
+
+    private final MovieRepository movieRepository;
+    private final MovieCatalogEncoder encoder;
+    private final Object writeLock = new Object();
+    /** Null while the repository be read-only, as its catalog never changes */
+    private final CatalogChangeLog changeLog;
+    private final List<CatalogListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile CatalogSnapshot snapshot;
+    private final MovieLeaderboards leaderboards = new MovieLeaderboards(MAX_TOP_MOVIES);
+    private final SingleFlight<String, List<Movie>> searchFlight = new SingleFlight<>();
+    private final ConcurrentHashMap<String, MovieQuery> queryPlans = new ConcurrentHashMap<>();
 
     public MovieService() {
-        this.movies = loadMoviesFromJson();
-        this.movieMap = new HashMap<>();
-        for (Movie movie : movies) {
-            movieMap.put(movie.getId(), movie);
-        }
-    }
-
-    private List<Movie> loadMoviesFromJson() {
-        List<Movie> movieList = new ArrayList<>();
-        try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("movies.json");
-            if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONArray moviesArray = new JSONArray(jsonContent);
-                for (int i = 0; i < moviesArray.length(); i++) {
-                    JSONObject movieObj = moviesArray.getJSONObject(i);
-                    movieList.add(new Movie(
-                        movieObj.getLong("id"),
-                        movieObj.getString("movieName"),
-                        movieObj.getString("director"),
-                        movieObj.getInt("year"),
-                        movieObj.getString("genre"),
-                        movieObj.getString("description"),
-                        movieObj.getInt("duration"),
-                        movieObj.getDouble("imdbRating")
-                    ));
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Failed to load movies from JSON: {}", e.getMessage());
+        this(new JsonMovieRepository());
+    }
+
+    public MovieService(MovieRepository movieRepository) {
+        this(movieRepository, DEFAULT_PARALLEL_SEARCH_THRESHOLD);
+    }
+
+    public MovieService(MovieRepository movieRepository, int parallelSearchThreshold) {
+        this(movieRepository, parallelSearchThreshold, false);
+    }
+
+    public MovieService(MovieRepository movieRepository, int parallelSearchThreshold, boolean compressDescriptions) {
+        this(movieRepository, parallelSearchThreshold, compressDescriptions, DEFAULT_CHANGELOG_CAPACITY);
+    }
+
+    public MovieService(MovieRepository movieRepository, int parallelSearchThreshold, boolean compressDescriptions,
+                        int changelogCapacity) {
+        this(movieRepository, MovieIconRegistry.getDefault(), parallelSearchThreshold, compressDescriptions,
+                changelogCapacity);
+    }
+
+    /**
+     * @param movieRepository Where the catalog be loaded from
+     * @param iconRegistry Rules every movie's icon be resolved with as it comes aboard
+     * @param parallelSearchThreshold Catalog size from which full scans be fanned out across cores
+     * @param compressDescriptions Whether to keep descriptions block-compressed until read
+     * @param changelogCapacity How many catalog changes be kept for {@link #getChangesSince(long)}
+     */
+    @Autowired
+    public MovieService(MovieRepository movieRepository, MovieIconRegistry iconRegistry,
+                        @Value("${movies.search.parallel-threshold:" + DEFAULT_PARALLEL_SEARCH_THRESHOLD + "}") int parallelSearchThreshold,
+                        @Value("${movies.catalog.compress-descriptions:false}") boolean compressDescriptions,
+                        @Value("${movies.changes.capacity:" + DEFAULT_CHANGELOG_CAPACITY + "}") int changelogCapacity) {
+        this.movieRepository = movieRepository;
+        this.encoder = new MovieCatalogEncoder(iconRegistry, compressDescriptions);
+        // The stored version names the stored data, so a restarted service carries on where it left off
+        OptionalLong version = movieRepository.getCatalogVersion();
+        this.changeLog = version.isPresent() ? new CatalogChangeLog(changelogCapacity, version.getAsLong()) : null;
+        this.snapshot = new CatalogSnapshot(
+                encoder.encode(movieRepository.findAllMovies()), parallelSearchThreshold);
+        PartitionedCatalog catalog = snapshot.getBaseCatalog();
+        for (Movie movie : catalog.getMovies()) {
+            leaderboards.put(movie, averageRating(movieRepository.findReviewsForMovie(movie.getId())));
         }
-        return movieList;
+        CatalogMemoryReport memoryReport = snapshot.getMemoryReport();
+        logger.info("Loaded {} movies from {} into {} partitions ({} search) at catalog version {}",
+                catalog.getMovies().size(), movieRepository.getClass().getSimpleName(), catalog.getPartitionCount(),
+                catalog.isParallel() ? "parallel" : "sequential", version.isPresent() ? version.getAsLong() : "none (read-only)");
+        logger.info("Catalog memory with {} descriptions: {} bytes ({} bytes/movie)",
+                compressDescriptions ? "compressed" : "plain", memoryReport.getTotalBytes(),
+                Math.round(memoryReport.getBytesPerMovie()));
+        logger.debug("Catalog memory by field: {}", memoryReport);
     }
 
     public List<Movie> getAllMovies() {
-        return movies;
+        return snapshot.getMovies();
     }
 
     public Optional<Movie> getMovieById(Long id) {
         if (id == null || id <= 0) {
             return Optional.empty();
         }
-        return Optional.ofNullable(movieMap.get(id));
+        return Optional.ofNullable(snapshot.get(id));
+    }
+
+    /**
+     * Adds a movie to the catalog, or replaces the one with the same ID, resolvin' its icon.
+     * The movie be stored in the repository first, then laid over the catalog without rebuildin'
+     * it. Arrr! Readers carry on with the old chest until the new one be swapped in whole.
+     *
+     * @param movie Movie to add or replace
+     * @return the recorded change, carryin' the new catalog version
+     * @throws IllegalArgumentException if the movie or its ID be missing, or its rating be off the 0 to 5 scale
+     * @throws UnsupportedOperationException if the repository be read-only
+     */
+    public CatalogChange upsertMovie(Movie movie) {
+        if (movie == null || movie.getId() <= 0) {
+            throw new IllegalArgumentException("A movie needs a positive ID to be stowed in the catalog");
+        }
+        requireRating(movie.getImdbRating());
+        synchronized (writeLock) {
+            boolean replaced = snapshot.get(movie.getId()) != null;
+            movieRepository.saveMovie(movie, writableChangeLog().nextVersion());
+            Movie encoded = encoder.encode(movie);
+            swapSnapshot(snapshot.with(encoded));
+            leaderboards.put(encoded, leaderboards.getAudienceRating(encoded.getId()));
+            return publish(replaced ? CatalogChange.Type.UPDATED : CatalogChange.Type.ADDED, encoded.getId(), encoded);
+        }
+    }
+
+    /**
+     * Removes a movie and its reviews from the repository and the catalog.
+     *
+     * @param movieId Movie to make walk the plank
+     * @return the recorded change, or empty if no such movie be aboard
+     * @throws UnsupportedOperationException if the repository be read-only
+     */
+    public Optional<CatalogChange> removeMovie(long movieId) {
+        synchronized (writeLock) {
+            if (snapshot.get(movieId) == null) {
+                return Optional.empty();
+            }
+            movieRepository.deleteMovie(movieId, writableChangeLog().nextVersion());
+            swapSnapshot(snapshot.without(movieId));
+            leaderboards.remove(movieId);
+            return Optional.of(publish(CatalogChange.Type.REMOVED, movieId, null));
+        }
+    }
+
+    /**
+     * Stores a review after the movie's existing ones, so change-feed clients know to refetch
+     * them and the audience-rating leaderboards be re-ranked.
+     *
+     * @param movieId Movie bein' reviewed
+     * @param review Review to add
+     * @return the recorded change, carryin' the new catalog version
+     * @throws IllegalArgumentException if no such movie be aboard, or the rating be off the 0 to 5 scale
+     * @throws UnsupportedOperationException if the repository be read-only
+     */
+    public CatalogChange addReview(long movieId, Review review) {
+        requireRating(review.getRating());
+        synchronized (writeLock) {
+            Movie movie = snapshot.get(movieId);
+            if (movie == null) {
+                throw new IllegalArgumentException("No movie with ID " + movieId + " in the catalog");
+            }
+            movieRepository.addReview(movieId, review, writableChangeLog().nextVersion());
+            leaderboards.put(movie, averageRating(movieRepository.findReviewsForMovie(movieId)));
+            return publish(CatalogChange.Type.REVIEWED, movieId, movie);
+        }
+    }
+
+    private CatalogChangeLog writableChangeLog() {
+        if (changeLog == null) {
+            throw new UnsupportedOperationException(
+                "The catalog be read-only, matey; set movies.repository.type=jdbc to make changes");
+        }
+        return changeLog;
+    }
+
+    private void swapSnapshot(CatalogSnapshot next) {
+        snapshot = next;
+        if (next.getOverlaySize() == 0) {
+            // The change folded the overlay into a new base; forget values no movie uses any more
+            encoder.retainOnly(next.getMovies());
+        }
+    }
+
+    private static void requireRating(double rating) {
+        if (!(rating >= 0 && rating <= MAX_RATING)) {
+            throw new IllegalArgumentException("Ratings run from 0 to " + MAX_RATING + ", not " + rating);
+        }
+    }
+
+    private CatalogChange publish(CatalogChange.Type type, long movieId, Movie movie) {
+        CatalogChange change = changeLog.append(type, movieId);
+        logger.info("Catalog change {} for movie {}, now at version {}", type, movieId, change.getVersion());
+        for (CatalogListener listener : listeners) {
+            listener.onCatalogChange(change, movie);
+        }
+        return change;
+    }
+
+    /**
+     * @param listener Called after every catalog and review change, in version order
+     */
+    public void addCatalogListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return version of the catalog as it stands, bumped by every catalog and review change;
+     *         empty if the repository be read-only, so there be no change feed
+     */
+    public OptionalLong getCatalogVersion() {
+        return changeLog == null ? OptionalLong.empty() : OptionalLong.of(changeLog.getVersion());
+    }
+
+    /**
+     * Works out what a client holdin' the catalog at some version needs to catch up.
+     *
+     * @param sinceVersion Version the client last saw
+     * @return the net changes since that version, or empty if it be too old (or unknown) and
+     *         the client must fetch the whole catalog again
+     * @throws UnsupportedOperationException if the repository be read-only, so there be no change feed
+     */
+    public Optional<CatalogDelta> getChangesSince(long sinceVersion) {
+        CatalogChangeLog changeLog = writableChangeLog();
+        synchronized (writeLock) {
+            Optional<List<CatalogChange>> changes = changeLog.since(sinceVersion);
+            if (!changes.isPresent()) {
+                return Optional.empty();
+            }
+
+            Map<Long, CatalogChange.Type> firstChange = new LinkedHashMap<>();
+            Set<Long> edited = new HashSet<>();
+            Set<Long> reviewed = new HashSet<>();
+            for (CatalogChange change : changes.get()) {
+                firstChange.putIfAbsent(change.getMovieId(), change.getType());
+                if (change.getType() == CatalogChange.Type.REVIEWED) {
+                    reviewed.add(change.getMovieId());
+                } else {
+                    edited.add(change.getMovieId());
+                }
+            }
+
+            List<Movie> added = new ArrayList<>();
+            List<Movie> updated = new ArrayList<>();
+            List<Long> removed = new ArrayList<>();
+            List<Long> reviewsChanged = new ArrayList<>();
+            for (Map.Entry<Long, CatalogChange.Type> entry : firstChange.entrySet()) {
+                long movieId = entry.getKey();
+                boolean existedBefore = entry.getValue() != CatalogChange.Type.ADDED;
+                Movie current = snapshot.get(movieId);
+                if (current == null) {
+                    if (existedBefore) {
+                        removed.add(movieId);
+                    }
+                    continue;
+                }
+                if (!existedBefore) {
+                    added.add(current);
+                } else if (edited.contains(movieId)) {
+                    updated.add(current);
+                }
+                if (reviewed.contains(movieId)) {
+                    reviewsChanged.add(movieId);
+                }
+            }
+            return Optional.of(new CatalogDelta(sinceVersion, changeLog.getVersion(),
+                    added, updated, removed, reviewsChanged));
+        }
     }
 
     /**
      * Searches for movies based on multiple criteria with pirate flair!
      * Arrr! This method be searchin' through our treasure chest of movies.
+     * Identical searches runnin' at the same time share one scan and one result list,
+     * so the returned list be read-only.
      * 
      * @param name Movie name to search for (case-insensitive partial match)
      * @param id Specific movie ID to find
@@ -82,10 +291,23 @@ public class MovieService {
     public List<Movie> searchMovies(String name, Long id, String genre) {
         logger.info("Ahoy! Searchin' for movies with name: '{}', id: '{}', genre: '{}'", name, id, genre);
         
-        List<Movie> results = new ArrayList<>();
+        // An invalid ID can never match, so there be no point scannin' the whole chest
+        if (id != null && id <= 0) {
+            logger.warn("Invalid movie ID {} in search, returnin' empty-handed!", id);
+            return Collections.emptyList();
+        }
         
+        String normalizedName = normalizeCriterion(name);
+        String normalizedGenre = normalizeCriterion(genre);
+        String key = normalizedName + '\u0000' + id + '\u0000' + normalizedGenre;
+        return searchFlight.execute(key, () -> Collections.unmodifiableList(
+                findMatchingMovies(normalizedName, id, normalizedGenre)));
+    }
+
+    private List<Movie> findMatchingMovies(String name, Long id, String genre) {
         // If searchin' by ID specifically, try to find that treasure first
-        if (id != null && id > 0) {
+        if (id != null) {
+            List<Movie> results = new ArrayList<>();
             Optional<Movie> movieById = getMovieById(id);
             if (movieById.isPresent()) {
                 Movie movie = movieById.get();
@@ -102,47 +324,130 @@ public class MovieService {
             return results;
         }
         
-        // Search through all movies like a proper pirate treasure hunt!
-        for (Movie movie : movies) {
-            if (matchesSearchCriteria(movie, name, genre)) {
-                results.add(movie);
-            }
-        }
+        // Search through all movies like a proper pirate treasure hunt, with the whole crew on big chests!
+        List<Movie> results = snapshot.filter(movie -> matchesSearchCriteria(movie, name, genre));
         
         logger.info("Arrr! Found {} movies matching yer search criteria", results.size());
         return results;
     }
 
+    /**
+     * Searches with a boolean query expression, such as {@code genre:drama year:1990..1999 -director:john}.
+     * Arrr! Each distinct query be parsed and planned once, then the plan be kept in the chest
+     * for the next sailor who asks the same thing.
+     * 
+     * @param query Query expression, see {@link MovieQuery} for the syntax; blank matches every movie
+     * @return read-only list of matching movies, in catalog order
+     * @throws IllegalArgumentException if the query be malformed
+     */
+    public List<Movie> queryMovies(String query) {
+        MovieQuery plan = compileQuery(query);
+        logger.info("Ahoy! Runnin' query '{}' as plan {}", plan.getText(), plan);
+        return searchFlight.execute("\u0000query\u0000" + plan.getText(), () -> {
+            List<Movie> results = snapshot.query(plan);
+            logger.info("Arrr! Query matched {} movies", results.size());
+            return Collections.unmodifiableList(results);
+        });
+    }
+
+    /**
+     * @return the plan for a query, parsed on first use and cached by query string
+     */
+    MovieQuery compileQuery(String query) {
+        String key = query == null ? "" : query.trim();
+        MovieQuery plan = queryPlans.get(key);
+        if (plan == null) {
+            // Racin' threads build equal plans and the first one stowed wins
+            plan = MovieQuery.parse(key);
+            if (queryPlans.size() >= MAX_CACHED_QUERY_PLANS) {
+                // A full chest drops whichever plan comes to hand, without a lock or a usage order to keep
+                Iterator<String> victim = queryPlans.keySet().iterator();
+                if (victim.hasNext()) {
+                    queryPlans.remove(victim.next());
+                }
+            }
+            MovieQuery cached = queryPlans.putIfAbsent(key, plan);
+            if (cached != null) {
+                plan = cached;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return number of query plans in the cache
+     */
+    int getCachedQueryPlanCount() {
+        return queryPlans.size();
+    }
+
+    /**
+     * Trims and lowercases a search criterion so equivalent searches share one key
+     * 
+     * @param criterion Raw search parameter
+     * @return normalized criterion, or empty string if there be no filter
+     */
+    private static String normalizeCriterion(String criterion) {
+        return criterion == null ? "" : criterion.trim().toLowerCase();
+    }
+
     /**
      * Checks if a movie matches the search criteria
      * 
      * @param movie The movie to check
-     * @param name Name criteria (null or empty means no filter)
-     * @param genre Genre criteria (null or empty means no filter)
+     * @param name Normalized name criteria (empty means no filter)
+     * @param genre Normalized genre criteria (empty means no filter)
      * @return true if movie matches all provided criteria
      */
     private boolean matchesSearchCriteria(Movie movie, String name, String genre) {
         // Check name criteria - case insensitive partial match
-        if (name != null && !name.trim().isEmpty()) {
-            String movieName = movie.getMovieName().toLowerCase();
-            String searchName = name.trim().toLowerCase();
-            if (!movieName.contains(searchName)) {
-                return false;
-            }
+        if (!name.isEmpty() && !movie.getMovieName().toLowerCase().contains(name)) {
+            return false;
         }
         
         // Check genre criteria - case insensitive partial match
-        if (genre != null && !genre.trim().isEmpty()) {
-            String movieGenre = movie.getGenre().toLowerCase();
-            String searchGenre = genre.trim().toLowerCase();
-            if (!movieGenre.contains(searchGenre)) {
-                return false;
-            }
+        if (!genre.isEmpty() && !movie.getGenre().toLowerCase().contains(genre)) {
+            return false;
         }
         
         return true;
     }
 
+    /**
+     * Highest rated movies, optionally within one genre and/or decade. Arrr! The boards be kept
+     * sorted as the catalog and reviews change, so no treasure needs countin' at request time.
+     *
+     * @param metric Rank by IMDb rating or by average review rating
+     * @param genre Genre to restrict to, e.g. "drama" (optional)
+     * @param decade Decade to restrict to, as any year in it, e.g. 1990 (optional)
+     * @param n Number of movies wanted, capped at {@link #MAX_TOP_MOVIES}
+     * @return the leaders with the score they be ranked by, best first
+     */
+    public List<MovieLeaderboards.Entry> getTopMovies(MovieLeaderboards.Metric metric, String genre, Integer decade, int n) {
+        return leaderboards.top(metric, genre, decade, n);
+    }
+
+    /**
+     * @return average rating of the reviews, or empty if there be none
+     */
+    static OptionalDouble averageRating(List<Review> reviews) {
+        return reviews.stream().mapToDouble(Review::getRating).average();
+    }
+
+    /**
+     * @return estimated heap footprint of the current catalog, by field
+     */
+    public CatalogMemoryReport getMemoryReport() {
+        return snapshot.getMemoryReport();
+    }
+
+    /**
+     * @return the single-flight group that coalesces concurrent identical searches
+     */
+    SingleFlight<String, List<Movie>> getSearchFlight() {
+        return searchFlight;
+    }
+
     /**
      * Gets all unique genres from the movie collection
      * Useful for populating search form dropdowns, ye savvy?
@@ -150,7 +455,7 @@ public class MovieService {
      * @return List of unique genres found in the movie treasure chest
      */
     public List<String> getAllGenres() {
-        return movies.stream()
+        return getAllMovies().stream()
                 .map(Movie::getGenre)
                 .distinct()
                 .sorted()
@@ -0,0 +1,321 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Precomputed k-nearest-neighbor table over movie feature vectors.
+ *
+ * Each movie becomes a sparse vector of genre tokens, director, year, duration, IMDb rating
+ * and audience (review) rating, and its k closest movies by Euclidean distance are stored.
+ * Lookups just return the stored list, so they cost O(k). Adding, changing or removing a
+ * movie only recomputes the lists it can affect instead of rebuilding the whole table.
+ *
+ * A list is computed by measuring each candidate once and keeping the k closest in a bounded
+ * heap, so it costs O(n log k). A rebuild measures each pair of movies once, for both lists.
+ */
+public class MovieSimilarityIndex {
+
+    // Dense numeric features occupy the first slots; categorical features get ids after them
+    private static final int YEAR = 0;
+    private static final int DURATION = 1;
+    private static final int IMDB_RATING = 2;
+    private static final int AUDIENCE_RATING = 3;
+    private static final int NUMERIC_FEATURES = 4;
+
+    // Scales chosen so that e.g. a shared genre outweighs 20 years or an hour of runtime
+    private static final double GENRE_WEIGHT = 1.0;
+    private static final double DIRECTOR_WEIGHT = 0.6;
+    private static final double YEARS_PER_UNIT = 40.0;
+    private static final double MINUTES_PER_UNIT = 240.0;
+    private static final double RATING_POINTS_PER_UNIT = 10.0;
+
+    // Heap order with the farthest candidate on top; ties broken by id so the table does not
+    // depend on hash iteration order
+    private static final Comparator<Neighbor> FARTHEST_FIRST = (a, b) -> {
+        int byDistance = Double.compare(b.distance, a.distance);
+        return byDistance != 0 ? byDistance : Long.compare(b.id, a.id);
+    };
+
+    private final int k;
+    private final Function<Long, OptionalDouble> audienceRating;
+    private final Map<String, Integer> featureIds = new HashMap<>();
+    private final Map<Long, FeatureVector> vectors = new HashMap<>();
+    private final ConcurrentHashMap<Long, List<Long>> neighbors = new ConcurrentHashMap<>();
+
+    /**
+     * @param k Number of neighbors kept per movie
+     * @param audienceRating Average review rating for a movie id, if it has reviews
+     */
+    public MovieSimilarityIndex(int k, Function<Long, OptionalDouble> audienceRating) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.audienceRating = audienceRating;
+    }
+
+    /**
+     * Replaces the index contents with the given catalog.
+     */
+    public synchronized void rebuild(Collection<Movie> movies) {
+        vectors.clear();
+        neighbors.clear();
+        for (Movie movie : movies) {
+            vectors.put(movie.getId(), vectorize(movie));
+        }
+        long[] ids = new long[vectors.size()];
+        FeatureVector[] byPosition = new FeatureVector[ids.length];
+        int position = 0;
+        for (Map.Entry<Long, FeatureVector> entry : vectors.entrySet()) {
+            ids[position] = entry.getKey();
+            byPosition[position++] = entry.getValue();
+        }
+        List<PriorityQueue<Neighbor>> closest = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            closest.add(new PriorityQueue<>(k + 1, FARTHEST_FIRST));
+        }
+        // Distance is symmetric, so each pair is measured once and offered to both lists
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = i + 1; j < ids.length; j++) {
+                double distance = byPosition[i].distanceTo(byPosition[j]);
+                offer(closest.get(i), new Neighbor(ids[j], distance));
+                offer(closest.get(j), new Neighbor(ids[i], distance));
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            neighbors.put(ids[i], ranked(closest.get(i)));
+        }
+    }
+
+    /**
+     * Adds a new movie or refreshes an existing one (e.g. after its reviews changed).
+     */
+    public synchronized void upsert(Movie movie) {
+        long id = movie.getId();
+        FeatureVector vector = vectorize(movie);
+        boolean existed = vectors.put(id, vector) != null;
+        neighbors.put(id, computeNeighbors(id));
+
+        for (Map.Entry<Long, FeatureVector> entry : vectors.entrySet()) {
+            long otherId = entry.getKey();
+            if (otherId == id) {
+                continue;
+            }
+            List<Long> current = neighbors.get(otherId);
+            if (existed && current.contains(id)) {
+                neighbors.put(otherId, rerank(otherId, id, current));
+            } else if (ranksAmong(entry.getValue(), id, vector, current)) {
+                neighbors.put(otherId, insert(otherId, id, current));
+            }
+        }
+    }
+
+    /**
+     * Drops a movie and refills the neighbor lists it appeared in.
+     */
+    public synchronized void remove(long id) {
+        if (vectors.remove(id) == null) {
+            return;
+        }
+        neighbors.remove(id);
+        for (Map.Entry<Long, List<Long>> entry : neighbors.entrySet()) {
+            if (entry.getValue().contains(id)) {
+                entry.setValue(computeNeighbors(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * @param id Movie id
+     * @return ids of the most similar movies, closest first; empty if the movie is not indexed
+     */
+    public List<Long> similarTo(long id) {
+        List<Long> similar = neighbors.get(id);
+        return similar != null ? similar : Collections.<Long>emptyList();
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    private boolean ranksAmong(FeatureVector target, long candidateId, FeatureVector candidate, List<Long> current) {
+        if (current.size() < k) {
+            return true;
+        }
+        long worstId = current.get(current.size() - 1);
+        return FARTHEST_FIRST.compare(new Neighbor(candidateId, target.distanceTo(candidate)),
+                new Neighbor(worstId, target.distanceTo(vectors.get(worstId)))) > 0;
+    }
+
+    private List<Long> insert(long targetId, long candidateId, List<Long> current) {
+        PriorityQueue<Neighbor> closest = measure(vectors.get(targetId), current);
+        offer(closest, new Neighbor(candidateId, vectors.get(targetId).distanceTo(vectors.get(candidateId))));
+        return ranked(closest);
+    }
+
+    /**
+     * Re-ranks a list after the distance to one of its movies changed. If that movie is still
+     * no farther than the rest of the list, the movies beyond the list can't overtake it and
+     * only the list is re-sorted; otherwise any movie might now belong, so all are measured.
+     */
+    private List<Long> rerank(long targetId, long changedId, List<Long> current) {
+        FeatureVector target = vectors.get(targetId);
+        List<Long> others = new ArrayList<>(current);
+        others.remove(Long.valueOf(changedId));
+        PriorityQueue<Neighbor> closest = measure(target, others);
+        Neighbor changed = new Neighbor(changedId, target.distanceTo(vectors.get(changedId)));
+        if (closest.isEmpty() || FARTHEST_FIRST.compare(changed, closest.peek()) < 0) {
+            return computeNeighbors(targetId);
+        }
+        offer(closest, changed);
+        return ranked(closest);
+    }
+
+    private List<Long> computeNeighbors(long targetId) {
+        FeatureVector target = vectors.get(targetId);
+        PriorityQueue<Neighbor> closest = new PriorityQueue<>(k + 1, FARTHEST_FIRST);
+        for (Map.Entry<Long, FeatureVector> entry : vectors.entrySet()) {
+            if (entry.getKey() != targetId) {
+                offer(closest, new Neighbor(entry.getKey(), target.distanceTo(entry.getValue())));
+            }
+        }
+        return ranked(closest);
+    }
+
+    private PriorityQueue<Neighbor> measure(FeatureVector target, List<Long> ids) {
+        PriorityQueue<Neighbor> closest = new PriorityQueue<>(k + 1, FARTHEST_FIRST);
+        for (Long id : ids) {
+            offer(closest, new Neighbor(id, target.distanceTo(vectors.get(id))));
+        }
+        return closest;
+    }
+
+    /**
+     * Adds a candidate to a heap of the k closest so far, dropping the farthest if it overflows
+     */
+    private void offer(PriorityQueue<Neighbor> closest, Neighbor candidate) {
+        if (closest.size() < k) {
+            closest.add(candidate);
+        } else if (FARTHEST_FIRST.compare(candidate, closest.peek()) > 0) {
+            closest.poll();
+            closest.add(candidate);
+        }
+    }
+
+    /**
+     * @return the heap's ids, closest first
+     */
+    private static List<Long> ranked(PriorityQueue<Neighbor> closest) {
+        Long[] ids = new Long[closest.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = closest.poll().id;
+        }
+        return Collections.unmodifiableList(Arrays.asList(ids));
+    }
+
+    /**
+     * A candidate neighbor and its distance, measured once
+     */
+    private static final class Neighbor {
+        final long id;
+        final double distance;
+
+        Neighbor(long id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+    }
+
+    private FeatureVector vectorize(Movie movie) {
+        double imdbRating = movie.getImdbRating();
+        double audience = audienceRating.apply(movie.getId()).orElse(imdbRating);
+
+        String[] genres = movie.getGenre() == null ? new String[0] : movie.getGenre().split("/");
+        Map<Integer, Double> sparse = new HashMap<>();
+        double genreWeight = genres.length == 0 ? 0 : GENRE_WEIGHT / Math.sqrt(genres.length);
+        for (String genre : genres) {
+            String token = genre.trim().toLowerCase(Locale.ROOT);
+            if (!token.isEmpty()) {
+                sparse.put(featureId("genre:" + token), genreWeight);
+            }
+        }
+        if (movie.getDirector() != null) {
+            sparse.put(featureId("director:" + movie.getDirector().trim().toLowerCase(Locale.ROOT)), DIRECTOR_WEIGHT);
+        }
+
+        double[] numeric = new double[NUMERIC_FEATURES];
+        numeric[YEAR] = movie.getYear() / YEARS_PER_UNIT;
+        numeric[DURATION] = movie.getDuration() / MINUTES_PER_UNIT;
+        numeric[IMDB_RATING] = imdbRating / RATING_POINTS_PER_UNIT;
+        numeric[AUDIENCE_RATING] = audience / RATING_POINTS_PER_UNIT;
+        return new FeatureVector(numeric, sparse);
+    }
+
+    private int featureId(String feature) {
+        Integer id = featureIds.get(feature);
+        if (id == null) {
+            id = NUMERIC_FEATURES + featureIds.size();
+            featureIds.put(feature, id);
+        }
+        return id;
+    }
+
+    /**
+     * Dense numeric features plus sorted sparse categorical features.
+     */
+    static final class FeatureVector {
+        private final double[] numeric;
+        private final int[] sparseIds;
+        private final double[] sparseWeights;
+        private final double sparseNormSquared;
+
+        FeatureVector(double[] numeric, Map<Integer, Double> sparse) {
+            this.numeric = numeric;
+            this.sparseIds = new int[sparse.size()];
+            this.sparseWeights = new double[sparse.size()];
+            int[] ids = sparse.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            double norm = 0;
+            for (int i = 0; i < ids.length; i++) {
+                sparseIds[i] = ids[i];
+                sparseWeights[i] = sparse.get(ids[i]);
+                norm += sparseWeights[i] * sparseWeights[i];
+            }
+            this.sparseNormSquared = norm;
+        }
+
+        double distanceTo(FeatureVector other) {
+            double sum = 0;
+            for (int i = 0; i < numeric.length; i++) {
+                double delta = numeric[i] - other.numeric[i];
+                sum += delta * delta;
+            }
+            // |a - b|^2 = |a|^2 + |b|^2 - 2 a.b, with the dot product over shared sparse ids only
+            double dot = 0;
+            int i = 0;
+            int j = 0;
+            while (i < sparseIds.length && j < other.sparseIds.length) {
+                if (sparseIds[i] == other.sparseIds[j]) {
+                    dot += sparseWeights[i++] * other.sparseWeights[j++];
+                } else if (sparseIds[i] < other.sparseIds[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            sum += sparseNormSquared + other.sparseNormSquared - 2 * dot;
+            return Math.sqrt(Math.max(0, sum));
+        }
+    }
+}
@@ -1,14 +1,45 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 
 @SpringBootApplication
 public class MoviesApplication {
 
+    private static final String APPLICATION_PACKAGE_PREFIX = "com.amazonaws.samples.qdevmovies.";
+
+    /**
+     * The application's beans that must be up before it reports ready
+     */
+    private static final Set<Class<?>> CRITICAL_APPLICATION_BEANS = new HashSet<>(Arrays.asList(
+            MovieService.class, DetailsFlightRecording.class));
+
     public static void main(String[] args) {
-        SpringApplication.run(MoviesApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(MoviesApplication.class, args);
+        // Runners, including the warm-up, have all returned by now
+        if (context.getEnvironment().getProperty("movies.warmup.exit", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
+    /**
+     * When lazy initialization is on (the faststart profile), leaves only the application's
+     * non-critical beans lazy, such as the similarity index, the details composer and the
+     * controller; the warm-up builds them before the app reports ready. Framework infrastructure
+     * is still built at startup, as are the catalog, so it loads and bad configuration fails
+     * early, and the flight recording, so the first requests are recorded.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerCriticalBeans() {
+        return (beanName, beanDefinition, beanType) -> !beanType.getName().startsWith(APPLICATION_PACKAGE_PREFIX)
+                || CRITICAL_APPLICATION_BEANS.contains(beanType);
+    }
 }
@@ -1,7 +1,8 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,14 +12,18 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 @Controller
 public class MoviesController {
     private static final Logger logger = LogManager.getLogger(MoviesController.class);
+    static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
 
     @Autowired
     private MovieService movieService;
@@ -26,6 +31,12 @@ public class MoviesController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private MovieDetailsComposer detailsComposer;
+
     @GetMapping("/movies")
     public String getMovies(org.springframework.ui.Model model) {
         logger.info("Fetching movies");
@@ -37,53 +48,86 @@ public class MoviesController {
     /**
      * Ahoy matey! This be the movie search endpoint that handles both HTML and JSON requests.
      * Search for movies by name, ID, or genre - or any combination ye desire!
+     * The response be JSON by default, or compact CBOR/Smile when the caller's Accept header asks for it.
      * 
      * @param name Movie name to search for (optional, case-insensitive partial match)
      * @param id Specific movie ID to find (optional)
      * @param genre Genre to filter by (optional, case-insensitive partial match)
      * @param model Spring model for HTML responses
-     * @return JSON response for API calls or HTML template for browser requests
+     * @return JSON, CBOR or Smile response for API calls, as negotiated from the Accept header
      */
-    @GetMapping("/movies/search")
+    @GetMapping(value = "/movies/search", produces = {
+            MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SMILE_MEDIA_TYPE})
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> searchMoviesApi(
+    public ResponseEntity<MovieSearchResponse> searchMoviesApi(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) Long id,
             @RequestParam(required = false) String genre) {
         
         logger.info("Ahoy! API search request received - name: '{}', id: '{}', genre: '{}'", name, id, genre);
         
-        Map<String, Object> response = new HashMap<>();
-        
         try {
             // Validate ID parameter if provided
             if (id != null && id <= 0) {
-                response.put("success", false);
-                response.put("message", "Arrr! That ID be invalid, matey! Must be a positive number.");
-                response.put("movies", List.of());
-                return ResponseEntity.badRequest().body(response);
+                return ResponseEntity.badRequest().body(MovieSearchResponse.failed(
+                    "Arrr! That ID be invalid, matey! Must be a positive number."));
             }
             
             List<Movie> searchResults = movieService.searchMovies(name, id, genre);
             
-            response.put("success", true);
-            response.put("movies", searchResults);
-            
+            String message;
             if (searchResults.isEmpty()) {
-                response.put("message", "Shiver me timbers! No movies found matching yer search criteria. Try castin' a wider net, ye savvy?");
+                message = "Shiver me timbers! No movies found matching yer search criteria. Try castin' a wider net, ye savvy?";
             } else {
-                response.put("message", String.format("Ahoy! Found %d treasure%s matching yer search!", 
-                    searchResults.size(), searchResults.size() == 1 ? "" : "s"));
+                message = String.format("Ahoy! Found %d treasure%s matching yer search!", 
+                    searchResults.size(), searchResults.size() == 1 ? "" : "s");
             }
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(MovieSearchResponse.found(message, searchResults));
             
         } catch (Exception e) {
             logger.error("Blimey! Error occurred during movie search: {}", e.getMessage(), e);
-            response.put("success", false);
-            response.put("message", "Arrr! Something went wrong during the search. The kraken might have eaten our data!");
-            response.put("movies", List.of());
-            return ResponseEntity.internalServerError().body(response);
+            return ResponseEntity.internalServerError().body(MovieSearchResponse.failed(
+                "Arrr! Something went wrong during the search. The kraken might have eaten our data!"));
+        }
+    }
+
+    /**
+     * Ahoy! Query-language flavour of the search endpoint, picked when a {@code q} parameter be present.
+     * Supports AND/OR/NOT, field:value terms and numeric ranges, e.g.
+     * {@code /movies/search?q=genre:drama AND year:1990..1999}.
+     *
+     * @param query Query expression, see {@link MovieQuery} for the syntax
+     * @return JSON, CBOR or Smile response with the matches, or 400 if the query be malformed
+     */
+    @GetMapping(value = "/movies/search", params = "q", produces = {
+            MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SMILE_MEDIA_TYPE})
+    @ResponseBody
+    public ResponseEntity<MovieSearchResponse> queryMoviesApi(@RequestParam("q") String query) {
+
+        logger.info("Ahoy! API query request received - q: '{}'", query);
+
+        try {
+            List<Movie> searchResults = movieService.queryMovies(query);
+
+            String message;
+            if (searchResults.isEmpty()) {
+                message = "Shiver me timbers! No movies found matching yer query. Try castin' a wider net, ye savvy?";
+            } else {
+                message = String.format("Ahoy! Found %d treasure%s matching yer query!",
+                    searchResults.size(), searchResults.size() == 1 ? "" : "s");
+            }
+
+            return ResponseEntity.ok(MovieSearchResponse.found(message, searchResults));
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Malformed query '{}': {}", query, e.getMessage());
+            return ResponseEntity.badRequest().body(MovieSearchResponse.failed(
+                "Arrr! That query be unreadable, matey! " + e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Blimey! Error occurred during movie query: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(MovieSearchResponse.failed(
+                "Arrr! Something went wrong during the search. The kraken might have eaten our data!"));
         }
     }
 
@@ -136,11 +180,17 @@ public class MoviesController {
         return "movies";
     }
 
+    /**
+     * Movie details page. Reviews and similar movies be fetched in parallel within the details budget;
+     * a part that misses it be left off the page rather than holdin' it up.
+     * Each phase be timed into Flight Recorder, and the Server-Timing header when it be on.
+     */
     @GetMapping("/movies/{id}/details")
     public String getMovieDetails(@PathVariable("id") Long movieId, org.springframework.ui.Model model) {
         logger.info("Fetching details for movie ID: {}", movieId);
         
-        Optional<Movie> movieOpt = movieService.getMovieById(movieId);
+        Optional<Movie> movieOpt = RequestTiming.phase("lookup", movieId,
+            () -> movieService.getMovieById(movieId), found -> found.isPresent() ? 1 : 0);
         if (!movieOpt.isPresent()) {
             logger.warn("Movie with ID {} not found", movieId);
             model.addAttribute("title", "Movie Not Found");
@@ -150,9 +200,156 @@ public class MoviesController {
         
         Movie movie = movieOpt.get();
         model.addAttribute("movie", movie);
-        model.addAttribute("movieIcon", MovieIconUtils.getMovieIcon(movie.getMovieName()));
-        model.addAttribute("allReviews", reviewService.getReviewsForMovie(movie.getId()));
+        model.addAllAttributes(detailsComposer.compose(movie));
         
         return "movie-details";
     }
-}
\ No newline at end of file
+
+    /**
+     * Ahoy! Returns movies similar to the given one, served from the precomputed neighbor table.
+     * 
+     * @param movieId Movie to find related treasures for
+     * @param limit Maximum number of similar movies to return (optional)
+     * @return JSON response with the similar movies, or 404 if the movie be unknown
+     */
+    @GetMapping("/movies/{id}/similar")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getSimilarMoviesApi(
+            @PathVariable("id") Long movieId,
+            @RequestParam(required = false) Integer limit) {
+        
+        logger.info("Ahoy! Similar movies request received for movie ID: {}", movieId);
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        if (!movieService.getMovieById(movieId).isPresent()) {
+            response.put("success", false);
+            response.put("message", "Arrr! No movie with ID " + movieId + " be found in our treasure chest.");
+            response.put("movies", List.of());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        
+        int max = recommendationService.getMaxSimilarMovies();
+        List<Movie> similar = recommendationService.getSimilarMovies(movieId,
+            limit == null || limit <= 0 ? max : Math.min(limit, max));
+        
+        response.put("success", true);
+        response.put("movies", similar);
+        response.put("message", String.format("Ahoy! Found %d treasure%s like this one!",
+            similar.size(), similar.size() == 1 ? "" : "s"));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Ahoy! Top-rated movies, for "best of" rails, served from leaderboards kept sorted as the catalog changes.
+     *
+     * @param genre Genre to restrict to, e.g. "drama" (optional)
+     * @param decade Decade to restrict to, as any year in it, e.g. 1990 (optional)
+     * @param n Number of movies to return (optional, default 10, at most 100)
+     * @param by Rank by "imdb" rating (default) or "audience" review rating
+     * @return JSON, CBOR or Smile response with the movies and their scores, best first
+     */
+    @GetMapping(value = "/movies/top", produces = {
+            MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SMILE_MEDIA_TYPE})
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getTopMoviesApi(
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) Integer decade,
+            @RequestParam(required = false) Integer n,
+            @RequestParam(required = false, defaultValue = "imdb") String by) {
+
+        logger.info("Ahoy! Top movies request received - genre: '{}', decade: '{}', n: '{}', by: '{}'", genre, decade, n, by);
+
+        Map<String, Object> response = new HashMap<>();
+
+        MovieLeaderboards.Metric metric;
+        try {
+            metric = MovieLeaderboards.Metric.valueOf(by.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Arrr! Movies can only be ranked by 'imdb' or 'audience', matey!");
+            response.put("movies", List.of());
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (n != null && n <= 0) {
+            response.put("success", false);
+            response.put("message", "Arrr! That count be invalid, matey! Must be a positive number.");
+            response.put("movies", List.of());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<MovieLeaderboards.Entry> leaders = movieService.getTopMovies(metric, genre, decade, n == null ? 10 : n);
+        List<Movie> movies = new ArrayList<>(leaders.size());
+        List<Double> scores = new ArrayList<>(leaders.size());
+        for (MovieLeaderboards.Entry leader : leaders) {
+            movies.add(leader.getMovie());
+            scores.add(leader.getScore());
+        }
+
+        response.put("success", true);
+        response.put("movies", movies);
+        response.put("scores", scores);
+        if (movies.isEmpty()) {
+            response.put("message", "Shiver me timbers! No rated movies found for that genre and decade.");
+        } else {
+            response.put("message", String.format("Ahoy! Here be the top %d treasure%s!",
+                movies.size(), movies.size() == 1 ? "" : "s"));
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Ahoy! Change feed for clients keepin' their own copy of the catalog.
+     * Returns the movies added, updated and removed since the given version, or tells the client
+     * to fetch the whole catalog again when that version be older than the changelog reaches back.
+     *
+     * @param since Catalog version the client last saw
+     * @return JSON, CBOR or Smile response with the changes and the version to ask from next time,
+     *         or 404 if the catalog be read-only and so has no change feed
+     */
+    @GetMapping(value = "/movies/changes", produces = {
+            MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SMILE_MEDIA_TYPE})
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getChangesApi(@RequestParam("since") long since) {
+
+        logger.info("Ahoy! Change feed request received - since: {}", since);
+
+        Map<String, Object> response = new HashMap<>();
+        OptionalLong current = movieService.getCatalogVersion();
+        if (!current.isPresent()) {
+            response.put("success", false);
+            response.put("message", "Arrr! This catalog be read-only and never changes, so there be no change feed to follow.");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        Optional<CatalogDelta> delta = movieService.getChangesSince(since);
+        response.put("success", true);
+
+        if (!delta.isPresent()) {
+            long version = current.getAsLong();
+            response.put("version", version);
+            response.put("fullResync", true);
+            response.put("added", List.of());
+            response.put("updated", List.of());
+            response.put("removed", List.of());
+            response.put("reviewsChanged", List.of());
+            response.put("message", String.format(
+                "Arrr! Version %d be lost to the depths, matey. Fetch the whole catalog again and ask from version %d.",
+                since, version));
+            return ResponseEntity.ok(response);
+        }
+
+        CatalogDelta changes = delta.get();
+        int count = changes.getAdded().size() + changes.getUpdated().size() + changes.getRemoved().size()
+            + changes.getReviewsChanged().size();
+        response.put("version", changes.getVersion());
+        response.put("fullResync", false);
+        response.put("added", changes.getAdded());
+        response.put("updated", changes.getUpdated());
+        response.put("removed", changes.getRemoved());
+        response.put("reviewsChanged", changes.getReviewsChanged());
+        response.put("message", count == 0
+            ? "Calm seas, matey! Nothin' has changed since yer last look."
+            : String.format("Ahoy! %d treasure%s changed since yer last look!", count, count == 1 ? "" : "s"));
+        return ResponseEntity.ok(response);
+    }
+}
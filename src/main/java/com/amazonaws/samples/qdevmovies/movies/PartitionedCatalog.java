@@ -0,0 +1,123 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Predicate;
+
+/**
+ * Immutable movie list split into contiguous partitions for scatter-gather scans.
+ *
+ * Scans of catalogs smaller than the parallel threshold run on the caller's thread, where
+ * fork/join overhead would cost more than it saves. Larger scans fork one task per partition
+ * onto a dedicated ForkJoin pool and concatenate the partial results in partition order, so
+ * the output order is the same as a sequential scan.
+ */
+public class PartitionedCatalog {
+
+    private static volatile ForkJoinPool searchPool;
+
+    private final List<Movie> movies;
+    private final List<List<Movie>> partitions;
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * Partitions the catalog by core count and scans on the shared search pool.
+     */
+    public PartitionedCatalog(List<Movie> movies, int parallelThreshold) {
+        this(movies, Runtime.getRuntime().availableProcessors(), parallelThreshold, null);
+    }
+
+    PartitionedCatalog(List<Movie> movies, int partitionCount, int parallelThreshold, ForkJoinPool pool) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count must be positive");
+        }
+        this.movies = Collections.unmodifiableList(new ArrayList<>(movies));
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+
+        int partitionSize = Math.max(1, (this.movies.size() + partitionCount - 1) / partitionCount);
+        List<List<Movie>> split = new ArrayList<>();
+        for (int start = 0; start < this.movies.size(); start += partitionSize) {
+            split.add(this.movies.subList(start, Math.min(start + partitionSize, this.movies.size())));
+        }
+        this.partitions = Collections.unmodifiableList(split);
+    }
+
+    /**
+     * @return every movie, in catalog order
+     */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    /**
+     * @return true if a full scan of this catalog would be fanned out over the pool
+     */
+    public boolean isParallel() {
+        return partitions.size() > 1 && movies.size() >= parallelThreshold;
+    }
+
+    /**
+     * Collects the movies matching a predicate, in catalog order.
+     *
+     * @param predicate Thread-safe filter applied to every movie
+     * @return matching movies
+     */
+    public List<Movie> filter(Predicate<Movie> predicate) {
+        if (!isParallel()) {
+            return scan(movies, predicate);
+        }
+
+        ForkJoinPool executor = pool != null ? pool : searchPool();
+        List<ForkJoinTask<List<Movie>>> tasks = new ArrayList<>(partitions.size());
+        for (List<Movie> partition : partitions) {
+            tasks.add(executor.submit(() -> scan(partition, predicate)));
+        }
+        List<Movie> results = new ArrayList<>();
+        for (ForkJoinTask<List<Movie>> task : tasks) {
+            results.addAll(task.join());
+        }
+        return results;
+    }
+
+    private static List<Movie> scan(List<Movie> partition, Predicate<Movie> predicate) {
+        List<Movie> matches = new ArrayList<>();
+        for (Movie movie : partition) {
+            if (predicate.test(movie)) {
+                matches.add(movie);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Dedicated pool so wide scans don't compete with the common pool used by the rest of the JVM.
+     * Its daemon workers start on demand and retire when idle.
+     */
+    private static ForkJoinPool searchPool() {
+        ForkJoinPool result = searchPool;
+        if (result == null) {
+            synchronized (PartitionedCatalog.class) {
+                result = searchPool;
+                if (result == null) {
+                    result = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setName("movie-search-" + thread.getPoolIndex());
+                        return thread;
+                    }, null, false);
+                    searchPool = result;
+                }
+            }
+        }
+        return result;
+    }
+}
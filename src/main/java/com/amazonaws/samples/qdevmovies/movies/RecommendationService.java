@@ -0,0 +1,122 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * "More like this" recommendations backed by a precomputed {@link MovieSimilarityIndex}.
+ *
+ * Catalog changes reach the index through a queue drained by one background thread, in version
+ * order, so re-ranking neighbor lists never runs under the catalog's write lock. Lists can
+ * trail the catalog by the changes still queued; a neighbor that has since left the catalog
+ * is skipped when the list is read.
+ */
+@Service
+public class RecommendationService {
+    private static final Logger logger = LogManager.getLogger(RecommendationService.class);
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final MovieSimilarityIndex similarityIndex;
+    private final ExecutorService indexUpdates = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "similarity-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public RecommendationService(MovieService movieService, ReviewService reviewService,
+                                 @Value("${movies.similar.neighbors:5}") int neighbors) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.similarityIndex = new MovieSimilarityIndex(neighbors, this::averageReviewRating);
+
+        long start = System.nanoTime();
+        similarityIndex.rebuild(movieService.getAllMovies());
+        logger.info("Built similarity index for {} movies in {} ms", movieService.getAllMovies().size(),
+                (System.nanoTime() - start) / 1_000_000);
+        movieService.addCatalogListener(this::onCatalogChange);
+    }
+
+    /**
+     * Finds movies similar to the given one from the precomputed neighbor table.
+     *
+     * @param movieId Movie to find related titles for
+     * @param limit Maximum number of movies to return (capped at the index's neighbor count)
+     * @return similar movies, most similar first; empty if the movie is unknown
+     */
+    public List<Movie> getSimilarMovies(long movieId, int limit) {
+        List<Movie> similar = new ArrayList<>();
+        for (Long id : similarityIndex.similarTo(movieId)) {
+            if (similar.size() >= limit) {
+                break;
+            }
+            Optional<Movie> movie = movieService.getMovieById(id);
+            movie.ifPresent(similar::add);
+        }
+        return similar;
+    }
+
+    /**
+     * @return number of neighbors precomputed per movie
+     */
+    public int getMaxSimilarMovies() {
+        return similarityIndex.getK();
+    }
+
+    /**
+     * Re-indexes a movie that was added or changed, including changes to its reviews.
+     */
+    public void onMovieChanged(Movie movie) {
+        similarityIndex.upsert(movie);
+    }
+
+    /**
+     * Removes a movie that left the catalog from all neighbor lists.
+     */
+    public void onMovieRemoved(long movieId) {
+        similarityIndex.remove(movieId);
+    }
+
+    /**
+     * Waits until every catalog change queued so far has reached the index.
+     */
+    void awaitIndexUpdates() throws InterruptedException, ExecutionException {
+        indexUpdates.submit(() -> { }).get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexUpdates.shutdownNow();
+    }
+
+    private void onCatalogChange(CatalogChange change, Movie movie) {
+        indexUpdates.execute(() -> {
+            try {
+                if (movie == null) {
+                    onMovieRemoved(change.getMovieId());
+                } else {
+                    onMovieChanged(movie);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to apply catalog change {} to the similarity index", change, e);
+            }
+        });
+    }
+
+    private OptionalDouble averageReviewRating(long movieId) {
+        return MovieService.averageRating(reviewService.getReviewsForMovie(movieId));
+    }
+}
@@ -0,0 +1,150 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Per-request phase timings, reported as JFR events and optionally in a {@code Server-Timing} header.
+ *
+ * {@link ServerTimingFilter} opens a timing for the request thread. Each phase then records
+ * into it and also emits a {@link MovieDetailsPhaseEvent}. With no timing open, for example
+ * in unit tests, phases still emit their events and simply skip the header bookkeeping.
+ * A phase records into the timing that was open when it began, so it can be begun on the
+ * request thread and ended on a worker thread.
+ */
+final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private final List<String> names = new ArrayList<>();
+    private final List<Long> durations = new ArrayList<>();
+    private final List<String> descriptions = new ArrayList<>();
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Opens a timing for the current thread's request.
+     */
+    static RequestTiming open() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Detaches this timing from the current thread.
+     */
+    void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs one phase of the request and records how long it took.
+     *
+     * @param name Phase name, as shown in the header
+     * @param movieId Movie the request is about
+     * @param work Work to run
+     * @param itemCount Counts the items the phase produced, for the JFR event
+     * @return the work's result
+     */
+    static <T> T phase(String name, long movieId, Supplier<T> work, ToIntFunction<T> itemCount) {
+        Phase phase = begin(name, movieId);
+        T result = work.get();
+        phase.end(itemCount.applyAsInt(result));
+        return result;
+    }
+
+    /**
+     * Starts a phase that ends somewhere else, such as template rendering or a worker thread.
+     */
+    static Phase begin(String name, long movieId) {
+        return new Phase(name, movieId, CURRENT.get());
+    }
+
+    /**
+     * @return header value such as {@code lookup;dur=0.04, reviews;desc="timeout";dur=250.00, total;dur=251.30}
+     */
+    synchronized String toHeaderValue() {
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            append(header, names.get(i), descriptions.get(i), durations.get(i));
+        }
+        append(header, "total", null, System.nanoTime() - start);
+        return header.toString();
+    }
+
+    private synchronized void record(String name, String description, long nanos) {
+        names.add(name);
+        descriptions.add(description);
+        durations.add(nanos);
+    }
+
+    private static void append(StringBuilder header, String name, String description, long nanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        header.append(name);
+        if (description != null) {
+            header.append(";desc=\"").append(description).append('"');
+        }
+        header.append(";dur=").append(String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0));
+    }
+
+    /**
+     * A running phase
+     */
+    static final class Phase {
+        private final MovieDetailsPhaseEvent event = new MovieDetailsPhaseEvent();
+        private final String name;
+        private final RequestTiming timing;
+        private final long start;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private Phase(String name, long movieId, RequestTiming timing) {
+            this.name = name;
+            this.timing = timing;
+            event.phase = name;
+            event.movieId = movieId;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * @param itemCount Number of items the phase produced
+         */
+        void end(int itemCount) {
+            finish(itemCount, null);
+        }
+
+        /**
+         * Ends the phase without a result, e.g. when the request stops waiting for it.
+         * A later {@link #end(int)} from the thread still doing the work is ignored.
+         *
+         * @param reason Short reason shown as the phase's description in the header
+         */
+        void abandon(String reason) {
+            finish(-1, reason);
+        }
+
+        private void finish(int itemCount, String description) {
+            if (!ended.compareAndSet(false, true)) {
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.itemCount = itemCount;
+                event.commit();
+            }
+            if (timing != null) {
+                timing.record(name, description, nanos);
+            }
+        }
+    }
+}
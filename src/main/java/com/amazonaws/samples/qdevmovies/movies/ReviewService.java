@@ -1,47 +1,50 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Scanner;
 
 @Service
 public class ReviewService {
-    private static final Logger logger = LogManager.getLogger(ReviewService.class);
+    private final MovieRepository movieRepository;
+    private final MovieService movieService;
+
+    public ReviewService() {
+        this(new JsonMovieRepository());
+    }
+
+    public ReviewService(MovieRepository movieRepository) {
+        this(movieRepository, null);
+    }
+
+    /**
+     * @param movieRepository Where reviews are read from
+     * @param movieService Catalog that stores new reviews and records them in its change feed,
+     *                     or null if reviews can't be added
+     */
+    @Autowired
+    public ReviewService(MovieRepository movieRepository, MovieService movieService) {
+        this.movieRepository = movieRepository;
+        this.movieService = movieService;
+    }
 
     public List<Review> getReviewsForMovie(long movieId) {
-        List<Review> reviews = new ArrayList<>();
-        try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mock-reviews.json");
-            if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONObject reviewsData = new JSONObject(jsonContent);
-                if (reviewsData.has(String.valueOf(movieId))) {
-                    JSONArray movieReviews = reviewsData.getJSONArray(String.valueOf(movieId));
-                    for (int i = 0; i < movieReviews.length(); i++) {
-                        JSONObject reviewObj = movieReviews.getJSONObject(i);
-                        reviews.add(new Review(
-                            reviewObj.getString("userName"),
-                            reviewObj.getString("avatarEmoji"),
-                            reviewObj.getDouble("rating"),
-                            reviewObj.getString("comment")
-                        ));
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Failed to load reviews for movie {}: {}", movieId, e.getMessage());
+        return movieRepository.findReviewsForMovie(movieId);
+    }
+
+    /**
+     * Stores a review after the movie's existing ones, through the catalog, which records the
+     * change in its change feed.
+     *
+     * @return the recorded change, carrying the new catalog version
+     * @throws IllegalArgumentException if the movie is not in the catalog
+     * @throws UnsupportedOperationException if reviews can't be stored
+     */
+    public CatalogChange addReview(long movieId, Review review) {
+        if (movieService == null) {
+            throw new UnsupportedOperationException("Reviews can't be added without a catalog to record them in");
         }
-        return reviews;
+        return movieService.addReview(movieId, review);
     }
 }
@@ -0,0 +1,105 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of the search endpoints.
+ *
+ * Each request first needs a token from its client's bucket, then a slot from the adaptive
+ * concurrency limiter. Rejected requests are answered immediately with 429 (client over its
+ * rate) or 503 (server at its concurrency limit) and a Retry-After header, instead of waiting
+ * for a Tomcat thread.
+ *
+ * Clients are told apart by authenticated user, or else by remote address. Request headers
+ * are not trusted for this, since a client could pick a fresh identity for every request.
+ * Behind a reverse proxy, set {@code server.forward-headers-strategy=native} so the remote
+ * address is taken from the proxy's forwarded-for header, and only for trusted proxies.
+ *
+ * Only the startup warm-up's own requests are let through uncharged, recognized by the
+ * per-process secret {@link WarmupRunner} sends over the loopback interface. Everything else is
+ * admitted as usual, including while the instance is starting up or refusing traffic.
+ */
+public class SearchAdmissionInterceptor implements HandlerInterceptor {
+    private static final Logger logger = LogManager.getLogger(SearchAdmissionInterceptor.class);
+
+    private static final String ADMITTED_AT_ATTRIBUTE = SearchAdmissionInterceptor.class.getName() + ".admittedAt";
+    private static final long OVERLOAD_RETRY_AFTER_SECONDS = 1;
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    public SearchAdmissionInterceptor(TokenBucketRateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (WarmupRunner.isWarmupRequest(request)) {
+            return true;
+        }
+
+        String clientKey = clientKey(request);
+        long waitNanos = rateLimiter.tryAcquire(clientKey);
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+            logger.debug("Rate limit hit for client {}, retry after {}s", clientKey, retryAfter);
+            reject(request, response, HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+                    "Arrr! Ye be searchin' too fast, matey! Slow down and try again shortly.");
+            return false;
+        }
+
+        long admittedAt = concurrencyLimiter.tryAcquire();
+        if (admittedAt < 0) {
+            logger.debug("Concurrency limit {} reached, shedding search request", concurrencyLimiter.getLimit());
+            reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, OVERLOAD_RETRY_AFTER_SECONDS,
+                    "Arrr! The ship be too crowded right now. Try again in a moment, ye savvy?");
+            return false;
+        }
+        request.setAttribute(ADMITTED_AT_ATTRIBUTE, admittedAt);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object admittedAt = request.getAttribute(ADMITTED_AT_ATTRIBUTE);
+        if (admittedAt != null) {
+            request.removeAttribute(ADMITTED_AT_ATTRIBUTE);
+            concurrencyLimiter.release((Long) admittedAt, ex == null && response.getStatus() < 500);
+        }
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                               long retryAfterSeconds, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (request.getRequestURI().endsWith("/form")) {
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write(message);
+        } else {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"success\":false,\"message\":\"" + message + "\",\"movies\":[]}");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Wires the phase timing for movie details pages, sent as a Server-Timing header unless
+ * {@code movies.server-timing.header} is turned off
+ */
+@Configuration
+public class ServerTimingConfig implements WebMvcConfigurer {
+
+    @Value("${movies.server-timing.header:true}")
+    private boolean sendHeader;
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter() {
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(new ServerTimingFilter(sendHeader));
+        registration.addUrlPatterns("/movies/*");
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ServerTimingFilter.RenderTimingInterceptor())
+                .addPathPatterns(ServerTimingFilter.DETAILS_PATTERN);
+    }
+}
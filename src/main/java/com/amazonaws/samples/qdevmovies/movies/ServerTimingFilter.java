@@ -0,0 +1,115 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Times the phases of each movie details request and records the request as a
+ * {@link MovieDetailsRequestEvent}. Rendering is timed by {@link RenderTimingInterceptor},
+ * because it happens after the controller returns.
+ *
+ * The breakdown is also sent to the client in a {@code Server-Timing} header. To send the
+ * header after the render phase but before the body, the whole page is buffered in memory until
+ * it has been rendered, so nothing reaches the client until rendering is done and flushes from
+ * the view are held back. With the header turned off, the page is written straight through and
+ * the render time goes only to the event. The breakdown is only formatted when the header or a
+ * committed event needs it.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "Server-Timing";
+    static final String DETAILS_PATTERN = "/movies/*/details";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final boolean sendHeader;
+
+    /**
+     * @param sendHeader Whether to buffer details pages and send the breakdown in a header
+     */
+    public ServerTimingFilter(boolean sendHeader) {
+        this.sendHeader = sendHeader;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !pathMatcher.match(DETAILS_PATTERN, request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        MovieDetailsRequestEvent event = new MovieDetailsRequestEvent();
+        event.begin();
+        RequestTiming timing = RequestTiming.open();
+        ContentCachingResponseWrapper buffered = sendHeader ? new ContentCachingResponseWrapper(response) : null;
+        try {
+            chain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            timing.close();
+            String serverTiming = null;
+            if (buffered != null) {
+                if (!response.isCommitted()) {
+                    serverTiming = timing.toHeaderValue();
+                    response.setHeader(HEADER, serverTiming);
+                }
+                buffered.copyBodyToResponse();
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.uri = request.getRequestURI();
+                event.status = response.getStatus();
+                event.serverTiming = serverTiming != null ? serverTiming : timing.toHeaderValue();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Times template rendering, from the controller returning to the view finishing
+     */
+    static class RenderTimingInterceptor implements HandlerInterceptor {
+        private static final String PHASE_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".phase";
+
+        @Override
+        public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                               ModelAndView modelAndView) {
+            if (modelAndView != null) {
+                request.setAttribute(PHASE_ATTRIBUTE, RequestTiming.begin("render", movieId(request)));
+            }
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                    Exception ex) {
+            Object phase = request.getAttribute(PHASE_ATTRIBUTE);
+            if (phase != null) {
+                request.removeAttribute(PHASE_ATTRIBUTE);
+                ((RequestTiming.Phase) phase).end(1);
+            }
+        }
+
+        private static long movieId(HttpServletRequest request) {
+            Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            if (variables instanceof Map) {
+                try {
+                    return Long.parseLong(String.valueOf(((Map<?, ?>) variables).get("id")));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free, per-client token bucket rate limiter.
+ *
+ * Each client's bucket is a single {@link AtomicLong} holding its "theoretical arrival time"
+ * (the generic cell rate algorithm), which behaves exactly like a token bucket refilled at
+ * {@code permitsPerSecond} and holding at most {@code burst} tokens, but can be updated
+ * with one compare-and-set and no timer thread.
+ *
+ * At most {@code maxClients} buckets are tracked. A new client takes the place of an idle one,
+ * found by sweeping the tracked clients in a circle a few at a time; if none of those is idle,
+ * the new client is turned away until one is. A flood of new client keys thus costs a bounded
+ * amount of memory and work per request and never resets an active client's bucket.
+ */
+public class TokenBucketRateLimiter {
+
+    /** Tracked clients looked at per new client before it is turned away */
+    static final int EVICTION_PROBES = 8;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxClients;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    // Tracked clients in sweep order; the next eviction candidate is at the head
+    private final ConcurrentLinkedQueue<String> sweep = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients) {
+        this(permitsPerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("Rate, burst and client limit must be positive");
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.maxClients = maxClients;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes one token from the client's bucket if one is available.
+     *
+     * @param clientKey Identifier of the calling client
+     * @return 0 if the request is admitted, otherwise the nanoseconds until a token is available
+     *         (or, for a new client while all tracked clients are active, until one may be idle)
+     */
+    public long tryAcquire(String clientKey) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(clientKey);
+        if (bucket == null) {
+            bucket = track(clientKey, now);
+            if (bucket == null) {
+                rejected.incrementAndGet();
+                return burstToleranceNanos;
+            }
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + emissionIntervalNanos;
+            long wait = next - now - burstToleranceNanos;
+            if (wait > 0) {
+                rejected.incrementAndGet();
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return a new full bucket for the client, or null if the client cap is reached and no
+     *         idle bucket could be found to make room
+     */
+    private AtomicLong track(String clientKey, long now) {
+        if (tracked.incrementAndGet() > maxClients && !evictIdleBucket(now)) {
+            tracked.decrementAndGet();
+            return null;
+        }
+        AtomicLong created = new AtomicLong(now);
+        AtomicLong existing = buckets.putIfAbsent(clientKey, created);
+        if (existing != null) {
+            tracked.decrementAndGet();
+            return existing;
+        }
+        sweep.add(clientKey);
+        return created;
+    }
+
+    /**
+     * A bucket whose arrival time has passed is full again, which is exactly the state a
+     * new bucket starts in, so it can be dropped without changing anyone's allowance.
+     * Active buckets met on the way go to the back of the sweep.
+     *
+     * @return whether a bucket was dropped
+     */
+    private boolean evictIdleBucket(long now) {
+        for (int probe = 0; probe < EVICTION_PROBES; probe++) {
+            String key = sweep.poll();
+            if (key == null) {
+                return false;
+            }
+            AtomicLong bucket = buckets.get(key);
+            if (bucket.get() <= now && buckets.remove(key, bucket)) {
+                tracked.decrementAndGet();
+                return true;
+            }
+            sweep.add(key);
+        }
+        return false;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    int getTrackedClientCount() {
+        return tracked.get();
+    }
+}
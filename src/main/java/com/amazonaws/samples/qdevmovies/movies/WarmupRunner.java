@@ -0,0 +1,200 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays representative traffic against the local server before the app reports ready.
+ *
+ * Spring Boot only flips the readiness probe to ACCEPTING_TRAFFIC once every ApplicationRunner
+ * has returned, so the first real request finds lazily created beans already built and the hot
+ * search, serialization and template paths already JIT-compiled. The requests go through the real
+ * HTTP stack and are built from a small sample of the loaded catalog: the movie list, details
+ * pages and similar movies for a few movies spread across it, and one search each by name, genre
+ * and query. The set stays the same size however big the catalog is, since the JIT needs the same
+ * code paths run many times rather than every movie visited once. The warm-up stops at the end of
+ * {@code movies.warmup.rounds} rounds or at {@code movies.warmup.timeout}, whichever comes first,
+ * and no request is started after the timeout.
+ *
+ * Each request carries a header with a secret made up per process, so search admission control
+ * can let warm-up requests from the loopback interface through without charging them, while
+ * every other request is admitted as usual. See {@link #isWarmupRequest(HttpServletRequest)}.
+ *
+ * With {@code movies.warmup.exit=true} the app shuts down once warmed up (see
+ * {@link MoviesApplication}), which is how the {@code cds} build profile records a
+ * class-data-sharing archive of a fully exercised app.
+ */
+@Component
+@ConditionalOnProperty(prefix = "movies.warmup", name = "enabled", havingValue = "true")
+public class WarmupRunner implements ApplicationRunner {
+    private static final Logger logger = LogManager.getLogger(WarmupRunner.class);
+
+    static final String WARMUP_HEADER = "X-Movies-Warmup";
+    private static final String WARMUP_TOKEN = UUID.randomUUID().toString();
+
+    static final int SAMPLE_MOVIES = 3;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${movies.warmup.rounds:50}")
+    private int rounds;
+
+    @Value("${movies.warmup.timeout:10s}")
+    private Duration timeout;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!(context instanceof WebServerApplicationContext)) {
+            logger.warn("No web server to warm up, skippin' warm-up");
+            return;
+        }
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        List<String> paths = warmupPaths(movieService.getAllMovies());
+
+        logger.info("Ahoy! Warmin' up with up to {} rounds of {} requests before takin' traffic", rounds, paths.size());
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        int requests = 0;
+        int failures = 0;
+        boolean timedOut = false;
+        warmup:
+        for (int round = 0; round < rounds; round++) {
+            for (String path : paths) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    timedOut = true;
+                    break warmup;
+                }
+                if (!get(port, path, (int) Math.min(remainingMillis, READ_TIMEOUT_MILLIS))) {
+                    failures++;
+                }
+                requests++;
+            }
+        }
+        logger.info("Warm-up {}: {} requests ({} failed) in {} ms", timedOut ? "timed out" : "done",
+                requests, failures, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * @return whether the request was sent by this process's warm-up over the loopback interface
+     */
+    static boolean isWarmupRequest(HttpServletRequest request) {
+        if (!WARMUP_TOKEN.equals(request.getHeader(WARMUP_HEADER))) {
+            return false;
+        }
+        try {
+            // The remote address is always an IP literal, so this never does a DNS lookup
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the secret this process's warm-up requests carry in {@link #WARMUP_HEADER}
+     */
+    static String getWarmupToken() {
+        return WARMUP_TOKEN;
+    }
+
+    /**
+     * @return request paths exercising every endpoint, drawn from up to {@link #SAMPLE_MOVIES}
+     *         movies evenly spread over the catalog
+     */
+    static List<String> warmupPaths(List<Movie> movies) {
+        Set<String> paths = new LinkedHashSet<>();
+        paths.add("/movies");
+        if (movies.isEmpty()) {
+            return new ArrayList<>(paths);
+        }
+
+        List<Movie> sample = new ArrayList<>(SAMPLE_MOVIES);
+        int sampleSize = Math.min(SAMPLE_MOVIES, movies.size());
+        for (int i = 0; i < sampleSize; i++) {
+            Movie movie = movies.get(i * movies.size() / sampleSize);
+            sample.add(movie);
+            paths.add("/movies/" + movie.getId() + "/details");
+            paths.add("/movies/" + movie.getId() + "/similar");
+        }
+
+        // One search of each kind, each from a different sampled movie where there are enough
+        Movie byName = sample.get(0);
+        Movie byGenre = sample.get(1 % sample.size());
+        Movie byQuery = sample.get(2 % sample.size());
+        String firstWord = byName.getMovieName().trim().split("\\s+")[0].toLowerCase(Locale.ROOT);
+        int decade = byQuery.getYear() / 10 * 10;
+        paths.add("/movies/search?name=" + encode(firstWord));
+        paths.add("/movies/search?genre=" + encode(firstGenre(byGenre)));
+        paths.add("/movies/search?q=" + encode("genre:" + firstGenre(byQuery) + " year:" + decade + ".." + (decade + 9)));
+        return new ArrayList<>(paths);
+    }
+
+    private static String firstGenre(Movie movie) {
+        return movie.getGenre().split("/")[0].trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean get(int port, String path, int timeoutMillis) {
+        try {
+            // Bodies are read to the end so the connection be kept alive for the next request
+            HttpURLConnection connection = (HttpURLConnection) new URL("http", "localhost", port, path).openConnection();
+            connection.setConnectTimeout(Math.min(CONNECT_TIMEOUT_MILLIS, timeoutMillis));
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestProperty(WARMUP_HEADER, WARMUP_TOKEN);
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                try (InputStream in = body) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) >= 0) {
+                        // Read the whole body so the server does the full amount of work
+                    }
+                }
+            }
+            return status < 400;
+        } catch (IOException e) {
+            logger.debug("Warm-up request {} failed: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Immutable, indexed collection of texts stored as Deflate-compressed blocks.
+ *
+ * Texts are grouped into fixed-size blocks before compressing, so similar wording across
+ * neighbouring entries is shared and the per-stream overhead is amortized. Reading an entry
+ * inflates its whole block. The most recently read blocks are kept decoded in a small cache,
+ * so repeated reads of popular entries skip the inflate. Everything else stays compressed.
+ */
+public final class BlockCompressedText {
+
+    public static final int DEFAULT_BLOCK_SIZE = 16;
+    private static final int DECODED_BLOCK_CACHE_SIZE = 8;
+
+    private final byte[][] blocks;
+    private final int blockSize;
+    private final int size;
+    private final long uncompressedBytes;
+    private final Map<Integer, String[]> decodedBlocks = Collections.synchronizedMap(
+            new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                    return size() > DECODED_BLOCK_CACHE_SIZE;
+                }
+            });
+
+    private BlockCompressedText(byte[][] blocks, int blockSize, int size, long uncompressedBytes) {
+        this.blocks = blocks;
+        this.blockSize = blockSize;
+        this.size = size;
+        this.uncompressedBytes = uncompressedBytes;
+    }
+
+    public static Builder builder() {
+        return new Builder(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param blockSize Number of texts compressed together
+     */
+    public static Builder builder(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        return new Builder(blockSize);
+    }
+
+    /**
+     * @param index Index returned by {@link Builder#add(String)}
+     * @return the text at that index
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for " + size + " texts");
+        }
+        int block = index / blockSize;
+        String[] texts = decodedBlocks.get(block);
+        if (texts == null) {
+            // Decode outside the lock; racing readers inflate the same block and either copy is fine
+            texts = inflate(blocks[block]);
+            decodedBlocks.put(block, texts);
+        }
+        return texts[index % blockSize];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    /**
+     * @return total bytes of compressed block data
+     */
+    public long getCompressedBytes() {
+        long total = 0;
+        for (byte[] block : blocks) {
+            total += block.length;
+        }
+        return total;
+    }
+
+    /**
+     * @return total UTF-8 bytes of the texts before compression
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    private static String[] inflate(byte[] block) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(block)))) {
+            String[] texts = new String[in.readInt()];
+            for (int i = 0; i < texts.length; i++) {
+                byte[] utf8 = new byte[in.readInt()];
+                in.readFully(utf8);
+                texts[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+            return texts;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt text block", e);
+        }
+    }
+
+    /**
+     * Collects texts in order and compresses each block as it fills up
+     */
+    public static final class Builder {
+        private final int blockSize;
+        private final List<byte[]> blocks = new ArrayList<>();
+        private final List<byte[]> pending = new ArrayList<>();
+        private int size;
+        private long uncompressedBytes;
+
+        private Builder(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        /**
+         * @param text Text to store
+         * @return the index to read it back with
+         */
+        public int add(String text) {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            pending.add(utf8);
+            uncompressedBytes += utf8.length;
+            if (pending.size() == blockSize) {
+                seal();
+            }
+            return size++;
+        }
+
+        public BlockCompressedText build() {
+            if (!pending.isEmpty()) {
+                seal();
+            }
+            return new BlockCompressedText(blocks.toArray(new byte[0][]), blockSize, size, uncompressedBytes);
+        }
+
+        private void seal() {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(compressed, deflater))) {
+                out.writeInt(pending.size());
+                for (byte[] utf8 : pending) {
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to compress text block", e);
+            } finally {
+                deflater.end();
+            }
+            blocks.add(compressed.toByteArray());
+            pending.clear();
+        }
+    }
+}
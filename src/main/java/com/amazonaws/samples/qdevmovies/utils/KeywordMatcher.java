@@ -0,0 +1,187 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Multi-pattern keyword matcher built on an Aho-Corasick automaton.
+ * All keywords are compiled once, then any text can be scanned for every
+ * keyword in a single pass regardless of how many keywords were added.
+ *
+ * Matching is case-insensitive and only counts whole words, so "war" matches
+ * "Space Wars" only if "wars" is the keyword, never "Award".
+ * When several keywords match, the one added first wins.
+ *
+ * @param <V> Value associated with each keyword
+ */
+public final class KeywordMatcher<V> {
+
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    private final Map<Character, Integer>[] transitions;
+    private final int[] failure;
+    private final int[][] outputs;
+    private final int[] keywordLengths;
+    private final List<V> values;
+
+    private KeywordMatcher(Map<Character, Integer>[] transitions, int[] failure, int[][] outputs,
+                           int[] keywordLengths, List<V> values) {
+        this.transitions = transitions;
+        this.failure = failure;
+        this.outputs = outputs;
+        this.keywordLengths = keywordLengths;
+        this.values = values;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return number of keywords compiled into this matcher
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Scans the text once and returns the value of the highest priority
+     * whole-word keyword found in it.
+     *
+     * @param text Text to scan (null is treated as empty)
+     * @return value of the first-added matching keyword, or null if none match
+     */
+    public V findFirst(String text) {
+        if (text == null || values.isEmpty()) {
+            return null;
+        }
+        int state = 0;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            state = next(state, c);
+            for (int keyword : outputs[state]) {
+                if (keyword >= best) {
+                    break;
+                }
+                int start = i - keywordLengths[keyword] + 1;
+                if (isWordBoundary(text, start - 1) && isWordBoundary(text, i + 1)) {
+                    best = keyword;
+                    break;
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : values.get(best);
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            Integer target = transitions[state].get(c);
+            if (target != null) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    private static boolean isWordBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    /**
+     * Collects keywords and compiles them into an immutable matcher.
+     */
+    public static final class Builder<V> {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<V> values = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder<V> add(String keyword, V value) {
+            if (keyword == null || keyword.trim().isEmpty()) {
+                throw new IllegalArgumentException("Keyword must not be empty");
+            }
+            keywords.add(keyword.trim().toLowerCase(Locale.ROOT));
+            values.add(value);
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public KeywordMatcher<V> build() {
+            List<Map<Character, Integer>> trie = new ArrayList<>();
+            List<List<Integer>> terminals = new ArrayList<>();
+            trie.add(new HashMap<>());
+            terminals.add(new ArrayList<>());
+
+            int[] lengths = new int[keywords.size()];
+            for (int k = 0; k < keywords.size(); k++) {
+                String keyword = keywords.get(k);
+                lengths[k] = keyword.length();
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    Integer target = trie.get(state).get(c);
+                    if (target == null) {
+                        target = trie.size();
+                        trie.add(new HashMap<>());
+                        terminals.add(new ArrayList<>());
+                        trie.get(state).put(c, target);
+                    }
+                    state = target;
+                }
+                terminals.get(state).add(k);
+            }
+
+            // Breadth-first walk so every state's failure target is final before its children need it
+            int[] failure = new int[trie.size()];
+            int[][] outputs = new int[trie.size()][];
+            outputs[0] = NO_OUTPUTS;
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int child : trie.get(0).values()) {
+                failure[child] = 0;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> edge : trie.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = failure[state];
+                    while (fallback != 0 && !trie.get(fallback).containsKey(edge.getKey())) {
+                        fallback = failure[fallback];
+                    }
+                    Integer target = trie.get(fallback).get(edge.getKey());
+                    failure[child] = target != null && target != child ? target : 0;
+                    queue.add(child);
+                }
+                outputs[state] = mergeOutputs(terminals.get(state), outputs[failure[state]]);
+            }
+
+            Map<Character, Integer>[] transitions = trie.toArray(new Map[0]);
+            return new KeywordMatcher<>(transitions, failure, outputs, lengths, new ArrayList<>(values));
+        }
+
+        private static int[] mergeOutputs(List<Integer> own, int[] inherited) {
+            if (own.isEmpty()) {
+                return inherited;
+            }
+            int[] merged = new int[own.size() + inherited.length];
+            for (int i = 0; i < own.size(); i++) {
+                merged[i] = own.get(i);
+            }
+            System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+            // Sorted by keyword index so lookups can stop at the first (highest priority) hit
+            Arrays.sort(merged);
+            return merged;
+        }
+    }
+}
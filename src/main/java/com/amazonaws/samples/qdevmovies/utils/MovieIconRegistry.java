@@ -0,0 +1,148 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * Data-driven registry that maps movies to display icons.
+ *
+ * Rules are loaded from a JSON resource (see movie-icons.json) and resolved in order:
+ * exact title, then title keywords, then genre keywords, then the default icon.
+ * Keyword and genre rules are compiled into {@link KeywordMatcher} automatons, so a
+ * lookup is a single pass over the title and genre no matter how many rules exist.
+ */
+public final class MovieIconRegistry {
+    private static final Logger logger = LogManager.getLogger(MovieIconRegistry.class);
+
+    public static final String DEFAULT_RESOURCE = "movie-icons.json";
+    /** Icon used when the rules name no default of their own, and for movies not yet resolved */
+    public static final String FALLBACK_ICON = "🎬";
+
+    private static volatile MovieIconRegistry defaultRegistry;
+
+    private final String defaultIcon;
+    private final Map<String, String> titleIcons;
+    private final KeywordMatcher<String> keywordIcons;
+    private final KeywordMatcher<String> genreIcons;
+
+    private MovieIconRegistry(String defaultIcon, Map<String, String> titleIcons,
+                              KeywordMatcher<String> keywordIcons, KeywordMatcher<String> genreIcons) {
+        this.defaultIcon = defaultIcon;
+        this.titleIcons = titleIcons;
+        this.keywordIcons = keywordIcons;
+        this.genreIcons = genreIcons;
+    }
+
+    /**
+     * @return registry loaded from {@value #DEFAULT_RESOURCE}, compiled once on first use
+     */
+    public static MovieIconRegistry getDefault() {
+        MovieIconRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (MovieIconRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = loadFromClasspath(DEFAULT_RESOURCE);
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Loads and compiles icon rules from a classpath resource.
+     * A missing or malformed resource yields a registry that always returns the default icon.
+     *
+     * @param resource Classpath location of the rules file
+     * @return compiled registry
+     */
+    public static MovieIconRegistry loadFromClasspath(String resource) {
+        try (InputStream inputStream = MovieIconRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+            if (inputStream != null) {
+                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
+                String jsonContent = scanner.useDelimiter("\\A").next();
+                scanner.close();
+                MovieIconRegistry registry = fromJson(new JSONObject(jsonContent));
+                logger.info("Loaded {} title, {} keyword and {} genre icon rules from {}",
+                        registry.titleIcons.size(), registry.keywordIcons.size(), registry.genreIcons.size(), resource);
+                return registry;
+            }
+            logger.warn("Icon rules resource {} not found, using default icon only", resource);
+        } catch (Exception e) {
+            logger.error("Failed to load icon rules from {}: {}", resource, e.getMessage());
+        }
+        return fromJson(new JSONObject());
+    }
+
+    /**
+     * Compiles icon rules from their JSON representation.
+     *
+     * @param rules Object with optional "defaultIcon", "titles", "keywords" and "genres" entries
+     * @return compiled registry
+     */
+    public static MovieIconRegistry fromJson(JSONObject rules) {
+        String defaultIcon = rules.optString("defaultIcon", FALLBACK_ICON);
+
+        Map<String, String> titleIcons = new HashMap<>();
+        JSONObject titles = rules.optJSONObject("titles");
+        if (titles != null) {
+            Iterator<String> keys = titles.keys();
+            while (keys.hasNext()) {
+                String title = keys.next();
+                titleIcons.put(normalize(title), titles.getString(title));
+            }
+        }
+
+        return new MovieIconRegistry(defaultIcon, titleIcons,
+                compileMatcher(rules.optJSONArray("keywords")),
+                compileMatcher(rules.optJSONArray("genres")));
+    }
+
+    private static KeywordMatcher<String> compileMatcher(JSONArray ruleArray) {
+        KeywordMatcher.Builder<String> builder = KeywordMatcher.builder();
+        if (ruleArray != null) {
+            for (int i = 0; i < ruleArray.length(); i++) {
+                JSONObject rule = ruleArray.getJSONObject(i);
+                builder.add(rule.getString("match"), rule.getString("icon"));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Resolves the icon for a movie.
+     *
+     * @param movieName Movie title
+     * @param genre Movie genre (may be null)
+     * @return the best matching icon, never null
+     */
+    public String resolve(String movieName, String genre) {
+        if (movieName != null) {
+            String icon = titleIcons.get(normalize(movieName));
+            if (icon != null) {
+                return icon;
+            }
+            icon = keywordIcons.findFirst(movieName);
+            if (icon != null) {
+                return icon;
+            }
+        }
+        String icon = genreIcons.findFirst(genre);
+        return icon != null ? icon : defaultIcon;
+    }
+
+    private static String normalize(String title) {
+        return title.trim().toLowerCase(Locale.ROOT);
+    }
+}
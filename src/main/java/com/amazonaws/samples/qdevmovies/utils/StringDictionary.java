@@ -0,0 +1,59 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality string fields such as director or genre.
+ *
+ * Every distinct value gets a dense integer code and is stored exactly once. Catalog loaders
+ * pass each value through {@link #canonical(String)}, so movies sharing a director all reference
+ * one String instead of each holding an equal copy. With compressed object pointers, that
+ * reference costs the same four bytes a separate int code would, and it decodes for free.
+ *
+ * Not thread-safe; build the dictionary while loading, then only read it.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @param value Value to encode
+     * @return the value's code, assigned on first sight
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * @param code Code returned by {@link #encode(String)}
+     * @return the value for the code
+     */
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * @param value Value to canonicalize, may be null
+     * @return the dictionary's single instance equal to the value
+     */
+    public String canonical(String value) {
+        return value == null ? null : decode(encode(value));
+    }
+
+    /**
+     * @return number of distinct values
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,253 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the versioned catalog changelog behind /movies/changes
+ */
+public class CatalogChangeFeedTest {
+
+    private HikariDataSource dataSource;
+    private JdbcMovieRepository repository;
+    private MovieService movieService;
+    private ReviewService reviewService;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = MovieRepositoryBackendsTest.inMemoryDataSource();
+        repository = new JdbcMovieRepository(dataSource, new JsonMovieRepository());
+        movieService = new MovieService(repository, MovieService.DEFAULT_PARALLEL_SEARCH_THRESHOLD, false, 4);
+        reviewService = new ReviewService(repository, movieService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testVersionAndChangesSurviveARestart() {
+        long start = movieService.getCatalogVersion().getAsLong();
+        assertEquals(repository.getCatalogVersion().getAsLong(), start);
+
+        movieService.upsertMovie(movie(1000L, "New Voyage"));
+        reviewService.addReview(1000L, new Review("Captain", "🏴‍☠️", 5.0, "A fine voyage"));
+        MovieService restarted = new MovieService(repository, MovieService.DEFAULT_PARALLEL_SEARCH_THRESHOLD, false, 4);
+
+        assertEquals(start + 2, restarted.getCatalogVersion().getAsLong());
+        assertEquals("New Voyage", restarted.getMovieById(1000L).get().getMovieName());
+        assertEquals(1, new ReviewService(repository, restarted).getReviewsForMovie(1000L).size());
+        assertTrue(restarted.getChangesSince(start + 2).get().getAdded().isEmpty());
+        assertFalse(restarted.getChangesSince(start).isPresent());
+    }
+
+    @Test
+    public void testReadOnlyCatalogRefusesChangesAndHasNoFeed() {
+        MovieService readOnly = new MovieService(new JsonMovieRepository());
+        int size = readOnly.getAllMovies().size();
+
+        assertFalse(readOnly.getCatalogVersion().isPresent());
+        assertThrows(UnsupportedOperationException.class, () -> readOnly.getChangesSince(0));
+        assertThrows(UnsupportedOperationException.class, () -> readOnly.upsertMovie(movie(1000L, "New Voyage")));
+        assertThrows(UnsupportedOperationException.class, () -> readOnly.removeMovie(1L));
+        assertThrows(UnsupportedOperationException.class,
+            () -> readOnly.addReview(1L, new Review("Captain", "🏴‍☠️", 5.0, "A fine voyage")));
+        assertEquals(size, readOnly.getAllMovies().size());
+        assertTrue(readOnly.getMovieById(1L).isPresent());
+    }
+
+    @Test
+    public void testRatingsOffTheFivePointScaleAreRefused() {
+        long start = movieService.getCatalogVersion().getAsLong();
+
+        assertThrows(IllegalArgumentException.class, () -> movieService.upsertMovie(
+            new Movie(1000L, "New Voyage", "Test Director", 2024, "Adventure", "A test voyage", 100, 7.5)));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.addReview(1L, new Review("Captain", "🏴‍☠️", 6.0, "Off the charts")));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.addReview(1L, new Review("Captain", "🏴‍☠️", -1.0, "Below the waterline")));
+        assertEquals(start, movieService.getCatalogVersion().getAsLong());
+        assertEquals(start, repository.getCatalogVersion().getAsLong());
+    }
+
+    @Test
+    public void testEveryChangeBumpsTheVersion() {
+        long start = movieService.getCatalogVersion().getAsLong();
+
+        CatalogChange added = movieService.upsertMovie(movie(1000L, "New Voyage"));
+        CatalogChange updated = movieService.upsertMovie(movie(1000L, "New Voyage: Director's Cut"));
+        CatalogChange removed = movieService.removeMovie(1000L).get();
+
+        assertEquals(CatalogChange.Type.ADDED, added.getType());
+        assertEquals(CatalogChange.Type.UPDATED, updated.getType());
+        assertEquals(CatalogChange.Type.REMOVED, removed.getType());
+        assertEquals(Arrays.asList(start + 1, start + 2, start + 3),
+            Arrays.asList(added.getVersion(), updated.getVersion(), removed.getVersion()));
+        assertEquals(start + 3, movieService.getCatalogVersion().getAsLong());
+        assertFalse(movieService.removeMovie(1000L).isPresent());
+    }
+
+    @Test
+    public void testCatalogReflectsChanges() {
+        int size = movieService.getAllMovies().size();
+        movieService.upsertMovie(movie(1000L, "New Voyage"));
+
+        assertEquals(size + 1, movieService.getAllMovies().size());
+        assertEquals("New Voyage", movieService.getMovieById(1000L).get().getMovieName());
+        assertEquals(1, movieService.searchMovies("new voyage", null, null).size());
+        assertEquals(1, movieService.queryMovies("name:\"new voyage\"").size());
+
+        movieService.removeMovie(1000L);
+        assertEquals(size, movieService.getAllMovies().size());
+        assertFalse(movieService.getMovieById(1000L).isPresent());
+        assertTrue(movieService.queryMovies("name:\"new voyage\"").isEmpty());
+    }
+
+    @Test
+    public void testDeltaCollapsesChangesPerMovie() {
+        long since = movieService.getCatalogVersion().getAsLong();
+        Movie existing = movieService.getAllMovies().get(0);
+        Movie other = movieService.getAllMovies().get(1);
+
+        movieService.upsertMovie(movie(1000L, "Added"));
+        movieService.upsertMovie(movie(1000L, "Added, then edited"));
+        movieService.upsertMovie(movie(existing.getId(), "Renamed"));
+        movieService.removeMovie(other.getId());
+
+        CatalogDelta delta = movieService.getChangesSince(since).get();
+        assertEquals(since + 4, delta.getVersion());
+        assertEquals(1, delta.getAdded().size());
+        assertEquals("Added, then edited", delta.getAdded().get(0).getMovieName());
+        assertEquals(1, delta.getUpdated().size());
+        assertEquals("Renamed", delta.getUpdated().get(0).getMovieName());
+        assertEquals(Arrays.asList(other.getId()), delta.getRemoved());
+        assertTrue(delta.getReviewsChanged().isEmpty());
+    }
+
+    @Test
+    public void testMovieAddedAndRemovedWithinRangeIsOmitted() {
+        long since = movieService.getCatalogVersion().getAsLong();
+        movieService.upsertMovie(movie(1000L, "Fleeting"));
+        movieService.removeMovie(1000L);
+
+        CatalogDelta delta = movieService.getChangesSince(since).get();
+        assertTrue(delta.getAdded().isEmpty());
+        assertTrue(delta.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void testReviewsBumpTheVersion() {
+        long since = movieService.getCatalogVersion().getAsLong();
+        long movieId = movieService.getAllMovies().get(0).getId();
+        int reviews = reviewService.getReviewsForMovie(movieId).size();
+
+        reviewService.addReview(movieId, new Review("Captain", "🏴‍☠️", 5.0, "A fine voyage"));
+
+        assertEquals(reviews + 1, reviewService.getReviewsForMovie(movieId).size());
+        CatalogDelta delta = movieService.getChangesSince(since).get();
+        assertEquals(Arrays.asList(movieId), delta.getReviewsChanged());
+        assertTrue(delta.getUpdated().isEmpty());
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.addReview(999_999L, new Review("Captain", "🏴‍☠️", 5.0, "Ghost ship")));
+    }
+
+    @Test
+    public void testLeaderboardsFollowCatalogAndReviews() {
+        Movie leader = movieService.getTopMovies(MovieLeaderboards.Metric.IMDB, null, null, 1).get(0).getMovie();
+        movieService.upsertMovie(new Movie(1000L, "Perfect Voyage", "Test Director", 2024, "Adventure", "Flawless", 100, 5.0));
+        // Ties on the top score go to the lowest id, so the new movie joins the leaders after the old ones
+        assertTrue(movieService.getTopMovies(MovieLeaderboards.Metric.IMDB, null, null, 100).stream()
+            .anyMatch(entry -> entry.getMovie().getId() == 1000L && entry.getScore() == 5.0));
+        assertEquals(1000L, movieService.getTopMovies(MovieLeaderboards.Metric.IMDB, "adventure", 2020, 1).get(0).getMovie().getId());
+        assertTrue(movieService.getTopMovies(MovieLeaderboards.Metric.AUDIENCE, null, null, 100).stream()
+            .noneMatch(entry -> entry.getMovie().getId() == 1000L));
+
+        reviewService.addReview(1000L, new Review("Captain", "🏴‍☠️", 5.0, "A fine voyage"));
+        MovieLeaderboards.Entry audienceLeader =
+            movieService.getTopMovies(MovieLeaderboards.Metric.AUDIENCE, "adventure", null, 1).get(0);
+        assertEquals(1000L, audienceLeader.getMovie().getId());
+        assertEquals(5.0, audienceLeader.getScore());
+
+        movieService.removeMovie(1000L);
+        assertEquals(leader.getId(), movieService.getTopMovies(MovieLeaderboards.Metric.IMDB, null, null, 1).get(0).getMovie().getId());
+    }
+
+    @Test
+    public void testUpToDateClientGetsEmptyDelta() {
+        movieService.upsertMovie(movie(1000L, "New Voyage"));
+        CatalogDelta delta = movieService.getChangesSince(movieService.getCatalogVersion().getAsLong()).get();
+
+        assertTrue(delta.getAdded().isEmpty());
+        assertTrue(delta.getUpdated().isEmpty());
+        assertTrue(delta.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void testVersionsOutsideTheChangelogNeedResync() {
+        long start = movieService.getCatalogVersion().getAsLong();
+        for (long id = 1000; id < 1006; id++) {
+            movieService.upsertMovie(movie(id, "Movie " + id));
+        }
+
+        // Capacity 4 keeps the last four changes, so only versions start + 2 onwards can be served
+        assertFalse(movieService.getChangesSince(start).isPresent());
+        assertFalse(movieService.getChangesSince(start + 1).isPresent());
+        assertEquals(4, movieService.getChangesSince(start + 2).get().getAdded().size());
+        assertFalse(movieService.getChangesSince(movieService.getCatalogVersion().getAsLong() + 1).isPresent());
+        assertFalse(movieService.getChangesSince(-1).isPresent());
+    }
+
+    @Test
+    public void testListenersSeeChangesInOrder() {
+        List<String> seen = new ArrayList<>();
+        movieService.addCatalogListener((change, movie) ->
+            seen.add(change.getType() + ":" + (movie == null ? "-" : movie.getMovieName())));
+
+        movieService.upsertMovie(movie(1000L, "New Voyage"));
+        movieService.removeMovie(1000L);
+
+        assertEquals(Arrays.asList("ADDED:New Voyage", "REMOVED:-"), seen);
+    }
+
+    @Test
+    public void testRecommendationsFollowTheCatalog() throws Exception {
+        RecommendationService recommendations = new RecommendationService(movieService, reviewService, 3);
+        Movie template = movieService.getAllMovies().get(0);
+        Movie twin = new Movie(1000L, template.getMovieName() + " Returns", template.getDirector(),
+            template.getYear(), template.getGenre(), template.getDescription(), template.getDuration(),
+            template.getImdbRating());
+
+        try {
+            movieService.upsertMovie(twin);
+            recommendations.awaitIndexUpdates();
+            assertTrue(ids(recommendations.getSimilarMovies(template.getId(), 3)).contains(1000L));
+
+            movieService.removeMovie(1000L);
+            recommendations.awaitIndexUpdates();
+            assertFalse(ids(recommendations.getSimilarMovies(template.getId(), 3)).contains(1000L));
+        } finally {
+            recommendations.shutdown();
+        }
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        List<Long> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static Movie movie(long id, String name) {
+        return new Movie(id, name, "Test Director", 2024, "Adventure", "A test voyage", 100, 4.0);
+    }
+}
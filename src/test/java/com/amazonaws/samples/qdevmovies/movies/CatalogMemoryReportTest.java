@@ -0,0 +1,161 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.MovieIconRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogMemoryReportTest {
+    private static final Logger logger = LogManager.getLogger(CatalogMemoryReportTest.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testEncodingSharesRepeatedValues() {
+        List<Movie> movies = syntheticCatalog(100);
+        List<Movie> encoded = encoder(false).encode(movies);
+
+        assertSame(encoded.get(0).getDirector(), encoded.get(7).getDirector());
+        assertSame(encoded.get(0).getGenre(), encoded.get(6).getGenre());
+        assertNotSame(movies.get(0).getDirector(), movies.get(7).getDirector());
+
+        CatalogMemoryReport before = CatalogMemoryReport.measure(movies);
+        CatalogMemoryReport after = CatalogMemoryReport.measure(encoded);
+        assertTrue(after.getBytesByField().get("director") < before.getBytesByField().get("director") / 10);
+        assertEquals(before.getBytesByField().get("description"), after.getBytesByField().get("description"));
+    }
+
+    @Test
+    public void testDictionariesKeepOnlyLiveValuesAfterRebuild() {
+        MovieCatalogEncoder encoder = encoder(false);
+        List<Movie> encoded = syntheticCatalog(100).stream().map(encoder::encode).collect(Collectors.toList());
+        assertTrue(encoder.getDictionarySize() > 3);
+
+        encoder.retainOnly(encoded.subList(0, 1));
+
+        assertEquals(3, encoder.getDictionarySize());
+        Movie sameDirector = encoder.encode(syntheticCatalog(8).get(7));
+        assertSame(encoded.get(0).getDirector(), sameDirector.getDirector());
+    }
+
+    @Test
+    public void testIconsResolvedWithGivenRegistry() {
+        MovieIconRegistry registry = MovieIconRegistry.fromJson(new JSONObject()
+                .put("defaultIcon", "?")
+                .put("genres", new JSONArray().put(new JSONObject().put("match", "western").put("icon", "🤠"))));
+        List<Movie> movies = syntheticCatalog(6);
+        assertEquals(MovieIconRegistry.getDefault().resolve("Movie 4", "Western"), movies.get(3).getIcon());
+
+        List<Movie> encoded = new MovieCatalogEncoder(registry, false).encode(movies);
+        assertEquals("🤠", encoded.get(3).getIcon());
+        assertEquals("?", encoded.get(0).getIcon());
+        assertSame(encoded.get(0).getIcon(), encoded.get(1).getIcon());
+    }
+
+    @Test
+    public void testCompressedMoviesReadAndSerializeTheSame() throws Exception {
+        List<Movie> plain = new MovieService().getAllMovies();
+        List<Movie> compact = new MovieService(new JsonMovieRepository(), Integer.MAX_VALUE, true).getAllMovies();
+
+        assertEquals(plain.size(), compact.size());
+        for (int i = 0; i < plain.size(); i++) {
+            assertNull(compact.get(i).getJsonFragment());
+            assertEquals(plain.get(i).getDescription(), compact.get(i).getDescription());
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(plain.get(i))),
+                    objectMapper.readTree(objectMapper.writeValueAsBytes(compact.get(i))));
+        }
+    }
+
+    @Test
+    public void testLoadedCatalogNotRetainedAlongsideEncodedOne() {
+        List<WeakReference<Movie>> loaded = new ArrayList<>();
+        JsonMovieRepository json = new JsonMovieRepository() {
+            @Override
+            public List<Movie> findAllMovies() {
+                List<Movie> movies = super.findAllMovies();
+                movies.forEach(movie -> loaded.add(new WeakReference<>(movie)));
+                return movies;
+            }
+        };
+        MovieService service = new MovieService(json);
+        assertEquals(12, loaded.size());
+
+        assertNotSame(json.findAllMovies(), json.findAllMovies());
+        for (int i = 0; i < 10 && loaded.stream().anyMatch(ref -> ref.get() != null); i++) {
+            System.gc();
+        }
+        assertTrue(loaded.stream().allMatch(ref -> ref.get() == null));
+        assertEquals(12, service.getAllMovies().size());
+    }
+
+    @Test
+    public void testReportAddsUpPerField() {
+        CatalogMemoryReport report = new MovieService().getMemoryReport();
+
+        assertEquals(12, report.getMovieCount());
+        long sum = report.getBytesByField().values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(sum, report.getTotalBytes());
+        assertEquals(sum / 12.0, report.getBytesPerMovie(), 0.001);
+        assertTrue(report.getBytesByField().get("jsonFragment") > 0);
+        assertTrue(report.toString().contains("bytes/movie"));
+    }
+
+    @Test
+    public void testStringsSizedForStringLayout() {
+        List<Movie> movies = Collections.singletonList(new Movie(1L, "Sixteen Letters!", "Director", 1994, "Drama",
+                "Description", 100, 4.0, "icon"));
+
+        // 24-byte String plus a 16-byte array header and the characters, 8-byte aligned
+        assertEquals(24 + 16 + 16, CatalogMemoryReport.measure(movies, true).getBytesByField().get("movieName"));
+        assertEquals(24 + 16 + 32, CatalogMemoryReport.measure(movies, false).getBytesByField().get("movieName"));
+        assertEquals(!System.getProperty("java.specification.version").startsWith("1."),
+                CatalogMemoryReport.compactStrings());
+    }
+
+    @Test
+    public void testCompareCatalogFootprints() {
+        List<Movie> movies = syntheticCatalog(100_000);
+        // Baseline: each movie with its own strings and JSON, as the catalog held them before encoding
+        CatalogMemoryReport loaded = CatalogMemoryReport.measure(movies.stream()
+                .map(movie -> movie.withJsonFragment(MovieJsonSerializer.encode(movie)))
+                .collect(Collectors.toList()));
+        CatalogMemoryReport dictionary = CatalogMemoryReport.measure(encoder(false).encode(movies));
+        CatalogMemoryReport compact = CatalogMemoryReport.measure(encoder(true).encode(movies));
+
+        logger.info("As loaded: {}", loaded);
+        logger.info("Dictionary-encoded: {}", dictionary);
+        logger.info("Dictionary-encoded, compressed descriptions: {}", compact);
+        assertTrue(dictionary.getTotalBytes() < loaded.getTotalBytes());
+        assertTrue(compact.getTotalBytes() < dictionary.getTotalBytes() / 2);
+    }
+
+    private static MovieCatalogEncoder encoder(boolean compressDescriptions) {
+        return new MovieCatalogEncoder(MovieIconRegistry.getDefault(), compressDescriptions);
+    }
+
+    static List<Movie> syntheticCatalog(int size) {
+        String[] genres = {"Drama", "Comedy", "Action/Crime", "Sci-Fi", "Western", "Horror/Thriller"};
+        String[] verbs = {"discovers", "hunts for", "loses", "guards", "steals", "returns"};
+        String[] objects = {"a buried treasure", "an ancient map", "a cursed ship", "the royal crown", "a lost city"};
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            String description = "A weathered captain " + verbs[i % verbs.length] + " " + objects[i % objects.length]
+                    + " while a rival crew closes in, forcing old friends to choose between loyalty and fortune"
+                    + " on voyage " + i + ".";
+            movies.add(new Movie(i, "Movie " + i, new String("Director " + (i % 7)), 1950 + i % 70,
+                    new String(genres[i % genres.length]), description, 90 + i % 60, (i % 50) / 10.0));
+        }
+        return movies;
+    }
+}
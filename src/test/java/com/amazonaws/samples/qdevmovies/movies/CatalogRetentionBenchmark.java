@@ -0,0 +1,55 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+/**
+ * Heap actually retained by a 100k-movie catalog once loaded, measured after a full GC rather
+ * than estimated field by field, with and without the repository keeping its own copy.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+public class CatalogRetentionBenchmark {
+    private static final Logger logger = LogManager.getLogger(CatalogRetentionBenchmark.class);
+
+    private static final int MOVIES = 100_000;
+
+    @Test
+    public void benchmarkRetainedCatalogHeap() {
+        for (boolean compress : new boolean[] {false, true}) {
+            long baseline = usedHeapAfterGc();
+            MovieService service = new MovieService(new SyntheticRepository(), Integer.MAX_VALUE, compress);
+            long serviceOnly = usedHeapAfterGc() - baseline;
+
+            List<Movie> repositoryCopy = new SyntheticRepository().findAllMovies();
+            long withCopy = usedHeapAfterGc() - baseline;
+
+            logger.info("{} descriptions - service only: {} bytes/movie, with a repository copy: {} bytes/movie",
+                    compress ? "Compressed" : "Plain", serviceOnly / MOVIES, withCopy / MOVIES);
+            // Keep both reachable until measured
+            logger.debug("Kept {} and {} movies", service.getAllMovies().size(), repositoryCopy.size());
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Builds a new catalog on every read, as the JSON and JDBC backends do
+     */
+    private static final class SyntheticRepository extends JsonMovieRepository {
+        @Override
+        public List<Movie> findAllMovies() {
+            return CatalogMemoryReportTest.syntheticCatalog(MOVIES);
+        }
+    }
+}
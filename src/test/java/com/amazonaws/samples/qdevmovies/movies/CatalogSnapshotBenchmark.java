@@ -0,0 +1,50 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of applying one change to a 100k-movie catalog snapshot, overlaid versus rebuilt whole,
+ * followed by a query so the overlay's index is built too. Run with {@code mvn -Pbenchmark test}.
+ */
+public class CatalogSnapshotBenchmark {
+    private static final Logger logger = LogManager.getLogger(CatalogSnapshotBenchmark.class);
+
+    private static final int CHANGES = 2000;
+
+    @Test
+    public void benchmarkOverlaidAndRebuiltChanges() {
+        List<Movie> movies = PartitionedCatalogTest.syntheticCatalog(100_000);
+        MovieQuery query = MovieQuery.parse("genre:drama year:1990..1999");
+
+        long overlaidNanos = time(movies, query, true);
+        long rebuiltNanos = time(movies, query, false);
+
+        logger.info("Change plus query on {} movies - overlaid: {} us/op, rebuilt: {} us/op",
+                movies.size(), overlaidNanos / 1000, rebuiltNanos / 1000);
+    }
+
+    private static long time(List<Movie> movies, MovieQuery query, boolean overlaid) {
+        List<Movie> current = new ArrayList<>(movies);
+        CatalogSnapshot snapshot = new CatalogSnapshot(current, Integer.MAX_VALUE);
+        long start = System.nanoTime();
+        for (int i = 0; i < CHANGES; i++) {
+            int position = (i * 7919) % current.size();
+            Movie old = current.get(position);
+            Movie changed = new Movie(old.getId(), old.getMovieName() + " (edit)", old.getDirector(), old.getYear(),
+                    old.getGenre(), old.getDescription(), old.getDuration(), old.getImdbRating());
+            if (overlaid) {
+                snapshot = snapshot.with(changed);
+            } else {
+                current.set(position, changed);
+                snapshot = new CatalogSnapshot(current, Integer.MAX_VALUE);
+            }
+            snapshot.query(query);
+        }
+        return (System.nanoTime() - start) / CHANGES;
+    }
+}
@@ -0,0 +1,92 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the overlaid catalog snapshots that changes build incrementally
+ */
+public class CatalogSnapshotTest {
+
+    @Test
+    public void testChangesAreOverlaidWithoutRebuild() {
+        List<Movie> movies = PartitionedCatalogTest.syntheticCatalog(1000);
+        CatalogSnapshot base = new CatalogSnapshot(movies, Integer.MAX_VALUE);
+
+        CatalogSnapshot changed = base.with(movie(5000L, "Movie Added"))
+                .with(movie(10L, "Movie Renamed"))
+                .without(20L)
+                .without(9999L);
+
+        assertSame(base.getBaseCatalog(), changed.getBaseCatalog());
+        assertEquals(3, changed.getOverlaySize());
+        assertEquals(1000, changed.size());
+        assertEquals("Movie Renamed", changed.get(10L).getMovieName());
+        assertNull(changed.get(20L));
+        assertEquals(5000L, changed.getMovies().get(999).getId());
+        assertEquals("Movie 10", base.get(10L).getMovieName());
+        assertSame(changed, changed.without(20L));
+    }
+
+    @Test
+    public void testOverlayFoldedIntoNewBaseAtLimit() {
+        List<Movie> movies = PartitionedCatalogTest.syntheticCatalog(100);
+        CatalogSnapshot snapshot = new CatalogSnapshot(movies, Integer.MAX_VALUE);
+        PartitionedCatalog base = snapshot.getBaseCatalog();
+
+        int limit = CatalogSnapshot.overlayLimit(movies.size());
+        for (int i = 1; i < limit; i++) {
+            snapshot = snapshot.with(movie(1000L + i, "Added " + i));
+        }
+        assertSame(base, snapshot.getBaseCatalog());
+        assertEquals(limit - 1, snapshot.getOverlaySize());
+
+        snapshot = snapshot.with(movie(5000L, "Added last"));
+        assertNotSame(base, snapshot.getBaseCatalog());
+        assertEquals(0, snapshot.getOverlaySize());
+        assertEquals(100 + limit, snapshot.size());
+        assertEquals(100 + limit, snapshot.getBaseCatalog().getMovies().size());
+    }
+
+    @Test
+    public void testReadsMatchAFullRebuildThroughRandomChanges() {
+        Random random = new Random(42);
+        TreeMap<Long, Movie> expected = new TreeMap<>();
+        for (Movie movie : PartitionedCatalogTest.syntheticCatalog(500)) {
+            expected.put(movie.getId(), movie);
+        }
+        CatalogSnapshot snapshot = new CatalogSnapshot(new ArrayList<>(expected.values()), Integer.MAX_VALUE);
+        MovieQuery query = MovieQuery.parse("name:\"movie 1\" OR year:1990..1999");
+
+        for (int i = 0; i < 300; i++) {
+            long id = 1 + random.nextInt(700);
+            if (random.nextInt(3) == 0) {
+                snapshot = snapshot.without(id);
+                expected.remove(id);
+            } else {
+                Movie movie = new Movie(id, "Movie " + id + "." + i, "Director " + i % 5, 1950 + random.nextInt(70),
+                        "Drama", "Changed " + i, 100, 3.0);
+                snapshot = snapshot.with(movie);
+                expected.put(id, movie);
+            }
+
+            CatalogSnapshot rebuilt = new CatalogSnapshot(new ArrayList<>(expected.values()), Integer.MAX_VALUE);
+            assertEquals(expected.size(), snapshot.size());
+            assertSame(expected.get(id), snapshot.get(id));
+            assertEquals(rebuilt.getMovies(), snapshot.getMovies());
+            assertEquals(rebuilt.query(query), snapshot.query(query));
+            assertEquals(rebuilt.filter(movie -> movie.getYear() % 7 == 0),
+                    snapshot.filter(movie -> movie.getYear() % 7 == 0));
+        }
+    }
+
+    private static Movie movie(long id, String name) {
+        return new Movie(id, name, "Test Director", 2024, "Adventure", "A test voyage", 100, 4.0);
+    }
+}
@@ -0,0 +1,213 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the parallel, deadline-bounded details page composition
+ */
+public class MovieDetailsComposerTest {
+
+    private static final Duration BUDGET = Duration.ofMillis(500);
+
+    private MovieService movieService;
+    private RecommendationService recommendationService;
+    private ExecutorService executor;
+    private Movie movie;
+    private CountDownLatch stalled;
+
+    @BeforeEach
+    public void setUp() {
+        movieService = new MovieService();
+        recommendationService = new RecommendationService(movieService, new ReviewService(), 3);
+        executor = Executors.newFixedThreadPool(4);
+        movie = movieService.getAllMovies().get(0);
+        stalled = new CountDownLatch(1);
+        // Load the parts' classes up front, so only the stalled source can miss the budget
+        composer(new ReviewService()).compose(movie);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stalled.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testComposesAllParts() {
+        MovieDetailsComposer composer = composer(new ReviewService());
+
+        Map<String, Object> attributes = composer.compose(movie);
+
+        assertEquals(movie.getIcon(), attributes.get("movieIcon"));
+        assertEquals(new ReviewService().getReviewsForMovie(movie.getId()).size(),
+            ((List<?>) attributes.get("allReviews")).size());
+        assertEquals(false, attributes.get("reviewsUnavailable"));
+        assertEquals(3, ((List<?>) attributes.get("similarMovies")).size());
+    }
+
+    @Test
+    public void testSlowReviewsDegradeWithinBudget() {
+        MovieDetailsComposer composer = composer(new ReviewService() {
+            @Override
+            public List<Review> getReviewsForMovie(long movieId) {
+                stall();
+                return super.getReviewsForMovie(movieId);
+            }
+        });
+
+        long start = System.nanoTime();
+        Map<String, Object> attributes = composer.compose(movie);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < BUDGET.toMillis() + 500, "Composition took " + elapsedMillis + " ms");
+        assertEquals(true, attributes.get("reviewsUnavailable"));
+        assertTrue(((List<?>) attributes.get("allReviews")).isEmpty());
+        assertEquals(3, ((List<?>) attributes.get("similarMovies")).size());
+        assertEquals(1, composer.getDegradedCount(MovieDetailsComposer.REVIEWS, MovieDetailsComposer.Degradation.TIMEOUT));
+        assertEquals(0, composer.getDegradedCount(MovieDetailsComposer.SIMILAR, MovieDetailsComposer.Degradation.TIMEOUT));
+    }
+
+    @Test
+    public void testFailingReviewsDegrade() {
+        MovieDetailsComposer composer = composer(new ReviewService() {
+            @Override
+            public List<Review> getReviewsForMovie(long movieId) {
+                throw new IllegalStateException("Review store unreachable");
+            }
+        });
+
+        Map<String, Object> attributes = composer.compose(movie);
+
+        assertEquals(true, attributes.get("reviewsUnavailable"));
+        assertEquals(1, composer.getDegradedCount(MovieDetailsComposer.REVIEWS, MovieDetailsComposer.Degradation.ERROR));
+    }
+
+    @Test
+    public void testSaturatedPoolDegradesInsteadOfBlocking() {
+        executor.shutdown();
+        MovieDetailsComposer composer = composer(new ReviewService());
+
+        Map<String, Object> attributes = composer.compose(movie);
+
+        assertEquals(true, attributes.get("reviewsUnavailable"));
+        assertTrue(((List<?>) attributes.get("similarMovies")).isEmpty());
+        assertEquals(movie.getIcon(), attributes.get("movieIcon"));
+        assertEquals(1, composer.getDegradedCount(MovieDetailsComposer.REVIEWS, MovieDetailsComposer.Degradation.REJECTED));
+        assertEquals(1, composer.getDegradedCount(MovieDetailsComposer.SIMILAR, MovieDetailsComposer.Degradation.REJECTED));
+    }
+
+    @Test
+    public void testWorkerPhasesLandInRequestTiming() {
+        MovieDetailsComposer composer = composer(new ReviewService() {
+            @Override
+            public List<Review> getReviewsForMovie(long movieId) {
+                stall();
+                return Collections.emptyList();
+            }
+        });
+
+        RequestTiming timing = RequestTiming.open();
+        try {
+            composer.compose(movie);
+        } finally {
+            timing.close();
+        }
+        String header = timing.toHeaderValue();
+
+        assertTrue(header.contains("reviews;desc=\"timeout\";dur="), header);
+        assertTrue(header.contains("similar;dur="), header);
+        assertTrue(header.contains("icon;dur="), header);
+    }
+
+    @Test
+    public void testInterruptedWorkerCannotOverwriteTimeout() throws InterruptedException {
+        CountDownLatch workerEnded = new CountDownLatch(1);
+        MovieDetailsComposer composer = composer(new ReviewService() {
+            @Override
+            public List<Review> getReviewsForMovie(long movieId) {
+                try {
+                    stalled.await();
+                } catch (InterruptedException e) {
+                    // Returns as soon as the request cancels it, racing to end the phase
+                }
+                workerEnded.countDown();
+                return Collections.emptyList();
+            }
+        });
+
+        RequestTiming timing = RequestTiming.open();
+        try {
+            composer.compose(movie);
+        } finally {
+            timing.close();
+        }
+        assertTrue(workerEnded.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        String header = timing.toHeaderValue();
+        assertTrue(header.contains("reviews;desc=\"timeout\";dur="), header);
+        assertEquals(1, header.split("reviews;").length - 1, header);
+    }
+
+    @Test
+    public void testLatencyIsBoundedByBudgetNotSlowestDependency() {
+        MovieDetailsComposer composer = composer(new ReviewService() {
+            private final AtomicInteger calls = new AtomicInteger();
+
+            @Override
+            public List<Review> getReviewsForMovie(long movieId) {
+                // Every fourth review fetch stalls well past the budget
+                if (calls.incrementAndGet() % 4 == 0) {
+                    stall();
+                    return Collections.emptyList();
+                }
+                return super.getReviewsForMovie(movieId);
+            }
+        });
+
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            long start = System.nanoTime();
+            composer.compose(movie);
+            latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        assertTrue(Collections.max(latencies) < BUDGET.toMillis() + 500, "Latencies " + latencies);
+        assertEquals(2, composer.getDegradedCount(MovieDetailsComposer.REVIEWS, MovieDetailsComposer.Degradation.TIMEOUT));
+    }
+
+    private MovieDetailsComposer composer(ReviewService reviewService) {
+        return new MovieDetailsComposer(reviewService, recommendationService, executor, BUDGET);
+    }
+
+    /**
+     * Blocks a fake review source until the test ends; interruption from a cancel is ignored,
+     * so the worker keeps running past the deadline like a source that can't be interrupted
+     */
+    private void stall() {
+        while (true) {
+            try {
+                stalled.await();
+                return;
+            } catch (InterruptedException e) {
+                // keep stalling
+            }
+        }
+    }
+}
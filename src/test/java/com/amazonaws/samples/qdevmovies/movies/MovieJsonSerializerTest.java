@@ -0,0 +1,96 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.MovieIconRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieJsonSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final MovieCatalogEncoder encoder = new MovieCatalogEncoder(MovieIconRegistry.getDefault(), false);
+
+    private final Movie movie = encoder.encode(new Movie(1L, "The Prison Escape", "John Director", 1994, "Drama",
+            "Two imprisoned men bond over a \"number\" of years.", 142, 5.0));
+
+    @Test
+    public void testMovieWithoutFragmentWritesSameJson() throws Exception {
+        Movie plain = new Movie(1L, "The Prison Escape", "John Director", 1994, "Drama",
+                "Two imprisoned men bond over a \"number\" of years.", 142, 5.0);
+
+        assertNull(plain.getJsonFragment());
+        assertArrayEquals(movie.getJsonFragment().asUnquotedUTF8(), objectMapper.writeValueAsBytes(plain));
+    }
+
+    @Test
+    public void testFragmentIsWrittenVerbatim() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(movie);
+
+        assertArrayEquals(movie.getJsonFragment().asUnquotedUTF8(), json);
+    }
+
+    @Test
+    public void testCharacterOutputWritesFields() throws Exception {
+        String json = objectMapper.writeValueAsString(movie);
+
+        assertEquals(objectMapper.readTree(movie.getJsonFragment().getValue()), objectMapper.readTree(json));
+    }
+
+    @Test
+    public void testFragmentQuotesAsJsonString() throws Exception {
+        JsonFragment fragment = movie.getJsonFragment();
+
+        String quoted = new String(fragment.asQuotedChars());
+        assertEquals(fragment.getValue(), objectMapper.readValue('"' + quoted + '"', String.class));
+        assertArrayEquals(quoted.getBytes(StandardCharsets.UTF_8), fragment.asQuotedUTF8());
+    }
+
+    @Test
+    public void testFragmentContainsAllMovieFields() throws Exception {
+        JsonNode node = objectMapper.readTree(objectMapper.writeValueAsBytes(movie));
+
+        assertEquals(1L, node.get("id").asLong());
+        assertEquals("The Prison Escape", node.get("movieName").asText());
+        assertEquals("John Director", node.get("director").asText());
+        assertEquals(1994, node.get("year").asInt());
+        assertEquals("Drama", node.get("genre").asText());
+        assertEquals("Two imprisoned men bond over a \"number\" of years.", node.get("description").asText());
+        assertEquals(142, node.get("duration").asInt());
+        assertEquals(5.0, node.get("imdbRating").asDouble());
+        assertEquals(movie.getIcon(), node.get("icon").asText());
+    }
+
+    @Test
+    public void testFragmentsConcatenateInsideSearchEnvelope() throws Exception {
+        Movie other = encoder.encode(new Movie(2L, "The Family Boss", "Michael Filmmaker", 1972, "Crime/Drama",
+                "The aging patriarch.", 175, 5.0));
+        MovieSearchResponse response = MovieSearchResponse.found("Ahoy!", Arrays.asList(movie, other));
+
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        JsonNode node = objectMapper.readTree(json);
+
+        assertEquals("{\"success\":true,\"message\":\"Ahoy!\",\"movies\":["
+                + movie.getJsonFragment().getValue() + "," + other.getJsonFragment().getValue() + "]}",
+                new String(json, StandardCharsets.UTF_8));
+        assertTrue(node.get("success").asBoolean());
+        assertEquals(2, node.get("movies").size());
+        assertEquals("The Family Boss", node.get("movies").get(1).get("movieName").asText());
+    }
+
+    @Test
+    public void testPrettyPrintingFallsBackToFieldWrites() throws Exception {
+        ObjectMapper prettyMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+        String pretty = prettyMapper.writeValueAsString(movie);
+
+        assertTrue(pretty.contains("\n"));
+        assertEquals(objectMapper.readTree(movie.getJsonFragment().getValue()), objectMapper.readTree(pretty));
+    }
+}
@@ -0,0 +1,90 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalDouble;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the incrementally maintained top-N boards
+ */
+public class MovieLeaderboardsTest {
+
+    private MovieLeaderboards leaderboards;
+
+    @BeforeEach
+    public void setUp() {
+        leaderboards = new MovieLeaderboards(3);
+        leaderboards.put(new Movie(1L, "The Family Boss", "Michael Filmmaker", 1972, "Crime/Drama", "Mob story", 175, 5.0), OptionalDouble.of(4.0));
+        leaderboards.put(new Movie(2L, "The Wise Guys", "Martin Filmmaker", 1990, "Crime/Drama", "Mob story", 146, 4.5), OptionalDouble.of(5.0));
+        leaderboards.put(new Movie(3L, "Urban Stories", "Quinn Director", 1994, "Crime/Drama", "City stories", 154, 4.7), OptionalDouble.empty());
+        leaderboards.put(new Movie(4L, "Space Wars", "George Director", 1977, "Adventure/Sci-Fi", "Space opera", 121, 4.6), OptionalDouble.of(4.5));
+        leaderboards.put(new Movie(5L, "Dream Heist", "Chris Moviemaker", 2010, "Action/Sci-Fi", "Dream caper", 148, 4.5), OptionalDouble.of(3.0));
+    }
+
+    @Test
+    public void testOverallBoardIsCappedAtDepth() {
+        assertEquals(Arrays.asList(1L, 3L, 4L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, null, 10)));
+        assertEquals(Arrays.asList(1L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, null, 1)));
+    }
+
+    @Test
+    public void testBoardsByGenreAndDecade() {
+        assertEquals(Arrays.asList(4L, 5L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, "SCI-FI", null, 10)));
+        assertEquals(Arrays.asList(3L, 2L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, 1990, 10)));
+        assertEquals(Arrays.asList(3L, 2L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, 1995, 10)));
+        assertEquals(Arrays.asList(1L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, "drama", 1970, 10)));
+        assertTrue(leaderboards.top(MovieLeaderboards.Metric.IMDB, "western", null, 10).isEmpty());
+    }
+
+    @Test
+    public void testTiesRankByIdAndScoresAreReported() {
+        List<MovieLeaderboards.Entry> top = leaderboards.top(MovieLeaderboards.Metric.IMDB, "crime", null, 10);
+        assertEquals(Arrays.asList(1L, 3L, 2L), ids(top));
+        assertEquals(5.0, top.get(0).getScore());
+
+        leaderboards.put(new Movie(6L, "Mob Story II", "Michael Filmmaker", 1974, "Crime", "Sequel", 200, 4.5), OptionalDouble.empty());
+        assertEquals(Arrays.asList(1L, 3L, 2L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, "crime", null, 10)));
+    }
+
+    @Test
+    public void testAudienceBoardsSkipUnreviewedMovies() {
+        assertEquals(Arrays.asList(2L, 1L), ids(leaderboards.top(MovieLeaderboards.Metric.AUDIENCE, "drama", null, 10)));
+        assertFalse(leaderboards.getAudienceRating(3L).isPresent());
+        assertEquals(5.0, leaderboards.getAudienceRating(2L).getAsDouble());
+    }
+
+    @Test
+    public void testChangedMovieMovesBetweenBoards() {
+        leaderboards.put(new Movie(5L, "Dream Heist", "Chris Moviemaker", 1999, "Drama", "Recut", 148, 4.9), OptionalDouble.of(3.0));
+
+        assertEquals(Arrays.asList(4L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, "sci-fi", null, 10)));
+        assertEquals(Arrays.asList(1L, 5L, 3L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, "drama", null, 10)));
+        assertEquals(Arrays.asList(5L, 3L, 2L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, 1990, 10)));
+        assertTrue(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, 2010, 10).isEmpty());
+    }
+
+    @Test
+    public void testRemovedMovieLeavesAllBoards() {
+        leaderboards.remove(1L);
+
+        assertEquals(Arrays.asList(3L, 4L, 2L), ids(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, null, 10)));
+        assertTrue(leaderboards.top(MovieLeaderboards.Metric.IMDB, null, 1970, 10).stream()
+            .noneMatch(entry -> entry.getMovie().getId() == 1L));
+        assertEquals(Arrays.asList(2L), ids(leaderboards.top(MovieLeaderboards.Metric.AUDIENCE, "drama", null, 10)));
+        assertFalse(leaderboards.getAudienceRating(1L).isPresent());
+    }
+
+    private static List<Long> ids(List<MovieLeaderboards.Entry> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (MovieLeaderboards.Entry entry : entries) {
+            ids.add(entry.getMovie().getId());
+        }
+        return ids;
+    }
+}
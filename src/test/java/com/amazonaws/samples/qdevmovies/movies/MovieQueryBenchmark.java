@@ -0,0 +1,48 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of a selective query over a 100k-movie catalog, as a compiled plan and as a filter scan.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+public class MovieQueryBenchmark {
+    private static final Logger logger = LogManager.getLogger(MovieQueryBenchmark.class);
+
+    private static final int ITERATIONS = 50;
+
+    @Test
+    public void benchmarkQueryPlanAgainstFilterScan() {
+        List<Movie> movies = MovieQueryTest.syntheticCatalog(100_000);
+        CatalogIndex index = new CatalogIndex(movies);
+        MovieQuery query = MovieQuery.parse("name:\"movie 9\" genre:western year:1990..1994 -rating:<2");
+        Predicate<Movie> filter = movie -> movie.getMovieName().toLowerCase().contains("movie 9")
+            && movie.getGenre().toLowerCase().contains("western")
+            && movie.getYear() >= 1990 && movie.getYear() <= 1994
+            && !(movie.getImdbRating() < 2);
+
+        long planNanos = time(() -> query.execute(index));
+        long scanNanos = time(() -> movies.stream().filter(filter).collect(Collectors.toList()));
+        logger.info("Query over {} movies - compiled plan: {} us/op, filter scan: {} us/op",
+            movies.size(), planNanos / 1000, scanNanos / 1000);
+    }
+
+    private static long time(Runnable operation) {
+        // Untimed pass first, so the plan's bitset loops and the stream pipeline are compiled
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieQueryTest {
+    private MovieService movieService;
+    private CatalogIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        movieService = new MovieService();
+        index = new CatalogIndex(movieService.getAllMovies());
+    }
+
+    @Test
+    public void testFieldTermsMatchLikeFilters() {
+        assertMatches("genre:drama", movie -> movie.getGenre().toLowerCase().contains("drama"));
+        assertMatches("director:\"john director\"", movie -> movie.getDirector().equalsIgnoreCase("John Director"));
+        assertMatches("PRISON", movie -> movie.getMovieName().toLowerCase().contains("prison"));
+        assertMatches("\"the family\"", movie -> movie.getMovieName().toLowerCase().contains("the family"));
+    }
+
+    @Test
+    public void testRangesAndComparisons() {
+        assertMatches("year:1990..1999", movie -> movie.getYear() >= 1990 && movie.getYear() <= 1999);
+        assertMatches("year:..1979", movie -> movie.getYear() <= 1979);
+        assertMatches("year:2000..", movie -> movie.getYear() >= 2000);
+        assertMatches("rating:>=4.5", movie -> movie.getImdbRating() >= 4.5);
+        assertMatches("rating:>4.5", movie -> movie.getImdbRating() > 4.5);
+        assertMatches("duration:<150", movie -> movie.getDuration() < 150);
+        assertMatches("id:3", movie -> movie.getId() == 3);
+    }
+
+    @Test
+    public void testBooleanOperatorsAndPrecedence() {
+        assertMatches("genre:drama AND year:<1980", movie -> isDrama(movie) && movie.getYear() < 1980);
+        assertMatches("genre:drama year:<1980", movie -> isDrama(movie) && movie.getYear() < 1980);
+        assertMatches("genre:action OR genre:comedy",
+            movie -> movie.getGenre().toLowerCase().contains("action") || movie.getGenre().toLowerCase().contains("comedy"));
+        assertMatches("NOT genre:drama", movie -> !isDrama(movie));
+        assertMatches("-genre:drama", movie -> !isDrama(movie));
+        assertMatches("genre:crime OR genre:drama year:<1980",
+            movie -> movie.getGenre().toLowerCase().contains("crime") || (isDrama(movie) && movie.getYear() < 1980));
+        assertMatches("(genre:crime OR genre:drama) year:<1980",
+            movie -> (movie.getGenre().toLowerCase().contains("crime") || isDrama(movie)) && movie.getYear() < 1980);
+        assertMatches("", movie -> true);
+    }
+
+    @Test
+    public void testLowercaseKeywordsAreSearchTerms() {
+        assertMatches("or", movie -> movie.getMovieName().toLowerCase().contains("or"));
+    }
+
+    @Test
+    public void testPlanIsCanonical() {
+        assertEquals("(AND genre:\"drama\" (NOT year:[*..1979]))", MovieQuery.parse("genre:Drama -year:<=1979").toString());
+        assertEquals("(OR name:\"a\" (AND name:\"b\" rating:[4..5]))", MovieQuery.parse("a OR b rating:4..5").toString());
+    }
+
+    @Test
+    public void testMalformedQueriesAreRejected() {
+        String[] malformed = {"genre:", "year:abc", "year:..", "unknown:value", "(genre:drama", "genre:drama)",
+            "\"unterminated", "NOT", "rating:>NaN"};
+        for (String query : malformed) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> MovieQuery.parse(query), query);
+            assertTrue(e.getMessage().contains("at position"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDeeplyNestedQueriesAreRejected() {
+        String[] tooDeep = {repeat("(", 10_000) + "a" + repeat(")", 10_000), repeat("NOT ", 10_000) + "a",
+            repeat("-", 10_000) + "a", repeat("(", MovieQuery.MAX_NESTING) + "a" + repeat(")", MovieQuery.MAX_NESTING)};
+        for (String query : tooDeep) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> MovieQuery.parse(query));
+            assertTrue(e.getMessage().contains("nested deeper"), e.getMessage());
+        }
+
+        String deepest = repeat("(", MovieQuery.MAX_NESTING - 1) + "genre:drama" + repeat(")", MovieQuery.MAX_NESTING - 1);
+        assertMatches(deepest, MovieQueryTest::isDrama);
+    }
+
+    @Test
+    public void testPlanCacheStaysBounded() {
+        for (int i = 0; i < MovieService.MAX_CACHED_QUERY_PLANS * 3; i++) {
+            movieService.compileQuery("year:" + i);
+        }
+        assertTrue(movieService.getCachedQueryPlanCount() <= MovieService.MAX_CACHED_QUERY_PLANS);
+    }
+
+    @Test
+    public void testEstimatesUseCatalogStatistics() {
+        assertEquals(movieService.searchMovies(null, null, "drama").size(), MovieQuery.parse("genre:drama").estimate(index));
+        assertEquals(index.size(), MovieQuery.parse("").estimate(index));
+        assertEquals(0, MovieQuery.parse("year:<1000").estimate(index));
+    }
+
+    @Test
+    public void testPlansAreCachedByQueryString() {
+        MovieQuery first = movieService.compileQuery("genre:drama year:1990..1999");
+        assertSame(first, movieService.compileQuery(" genre:drama year:1990..1999 "));
+        assertNotSame(first, movieService.compileQuery("genre:drama"));
+        assertEquals(movieService.queryMovies("genre:drama year:1990..1999"), first.execute(index));
+    }
+
+    @Test
+    public void testQueryResultsAreReadOnly() {
+        List<Movie> results = movieService.queryMovies("genre:drama");
+        assertThrows(UnsupportedOperationException.class, () -> results.add(results.get(0)));
+    }
+
+    @Test
+    public void testPlanMatchesFilterOnLargeCatalog() {
+        List<Movie> movies = syntheticCatalog(10_000);
+        Predicate<Movie> filter = movie -> movie.getMovieName().toLowerCase().contains("movie 9")
+            && movie.getGenre().toLowerCase().contains("western")
+            && movie.getYear() >= 1990 && movie.getYear() <= 1994
+            && !(movie.getImdbRating() < 2);
+
+        List<Movie> expected = movies.stream().filter(filter).collect(Collectors.toList());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, MovieQuery.parse("name:\"movie 9\" genre:western year:1990..1994 -rating:<2")
+            .execute(new CatalogIndex(movies)));
+    }
+
+    private void assertMatches(String query, Predicate<Movie> expected) {
+        List<Long> wanted = movieService.getAllMovies().stream().filter(expected).map(Movie::getId).collect(Collectors.toList());
+        List<Long> actual = MovieQuery.parse(query).execute(index).stream().map(Movie::getId).collect(Collectors.toList());
+        assertEquals(wanted, actual, query);
+    }
+
+    private static boolean isDrama(Movie movie) {
+        return movie.getGenre().toLowerCase().contains("drama");
+    }
+
+    static List<Movie> syntheticCatalog(int size) {
+        String[] genres = {"Drama", "Comedy", "Action/Crime", "Sci-Fi", "Western", "Horror/Thriller"};
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            movies.add(new Movie(i, "Movie " + i, "Director " + (i % 97), 1950 + i % 70, genres[i % genres.length],
+                "Description " + i, 90 + i % 60, (i % 50) / 10.0));
+        }
+        return movies;
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder repeated = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Cost of the repository operations the service uses, on the JSON and embedded-database backends.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+public class MovieRepositoryBackendsBenchmark {
+    private static final Logger logger = LogManager.getLogger(MovieRepositoryBackendsBenchmark.class);
+
+    private static final int ITERATIONS = 500;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void benchmarkBackends() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:file:" + tempDir.resolve("movies").toAbsolutePath());
+        config.setUsername("sa");
+        config.setMaximumPoolSize(2);
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            JsonMovieRepository jsonRepository = new JsonMovieRepository();
+            MovieRepository[] backends = {jsonRepository, new JdbcMovieRepository(dataSource, jsonRepository)};
+            for (MovieRepository backend : backends) {
+                String name = backend.getClass().getSimpleName();
+                logger.info("{} findAllMovies: {} ns/op", name, time(backend, repo -> repo.findAllMovies()));
+                logger.info("{} findReviewsForMovie: {} ns/op", name, time(backend, repo -> repo.findReviewsForMovie(1L)));
+            }
+        }
+    }
+
+    private static long time(MovieRepository repository, Consumer<MovieRepository> operation) {
+        // Untimed pass first, so JDBC statements are compiled and pooled connections are open
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.accept(repository);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.accept(repository);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
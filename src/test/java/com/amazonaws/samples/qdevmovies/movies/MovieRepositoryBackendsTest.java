@@ -0,0 +1,149 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the JSON and embedded-database repositories agree.
+ */
+public class MovieRepositoryBackendsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HikariDataSource dataSource;
+    private JsonMovieRepository jsonRepository;
+    private JdbcMovieRepository jdbcRepository;
+
+    @BeforeEach
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:file:" + tempDir.resolve("movies").toAbsolutePath());
+        config.setUsername("sa");
+        config.setMaximumPoolSize(2);
+        dataSource = new HikariDataSource(config);
+        jsonRepository = new JsonMovieRepository();
+        jdbcRepository = new JdbcMovieRepository(dataSource, jsonRepository);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testBackendsReturnSameCatalog() {
+        assertEquals(ids(jsonRepository.findAllMovies()), ids(jdbcRepository.findAllMovies()));
+        assertEquals(12, jdbcRepository.findAllMovies().size());
+
+        Movie fromJson = jsonRepository.findAllMovies().get(1);
+        Movie fromJdbc = jdbcRepository.findAllMovies().get(1);
+        assertEquals(fromJson.getMovieName(), fromJdbc.getMovieName());
+        assertEquals(fromJson.getDirector(), fromJdbc.getDirector());
+        assertEquals(fromJson.getYear(), fromJdbc.getYear());
+        assertEquals(fromJson.getGenre(), fromJdbc.getGenre());
+        assertEquals(fromJson.getDescription(), fromJdbc.getDescription());
+        assertEquals(fromJson.getDuration(), fromJdbc.getDuration());
+        assertEquals(fromJson.getImdbRating(), fromJdbc.getImdbRating());
+    }
+
+    @Test
+    public void testBackendsReturnSameReviews() {
+        List<Review> fromJson = jsonRepository.findReviewsForMovie(1L);
+        List<Review> fromJdbc = jdbcRepository.findReviewsForMovie(1L);
+
+        assertFalse(fromJson.isEmpty());
+        assertEquals(fromJson.size(), fromJdbc.size());
+        for (int i = 0; i < fromJson.size(); i++) {
+            assertEquals(fromJson.get(i).getUserName(), fromJdbc.get(i).getUserName());
+            assertEquals(fromJson.get(i).getAvatarEmoji(), fromJdbc.get(i).getAvatarEmoji());
+            assertEquals(fromJson.get(i).getComment(), fromJdbc.get(i).getComment());
+        }
+        assertTrue(jdbcRepository.findReviewsForMovie(999L).isEmpty());
+    }
+
+    @Test
+    public void testExistingDatabaseIsNotReseeded() {
+        JdbcMovieRepository reopened = new JdbcMovieRepository(dataSource, jsonRepository);
+
+        assertEquals(12, reopened.findAllMovies().size());
+        assertEquals(jsonRepository.findReviewsForMovie(1L).size(), reopened.findReviewsForMovie(1L).size());
+    }
+
+    @Test
+    public void testDatabaseFailuresAreNotMistakenForEmptyResults() {
+        dataSource.close();
+
+        assertThrows(IllegalStateException.class, () -> jdbcRepository.findReviewsForMovie(1L));
+        assertThrows(IllegalStateException.class, () -> jdbcRepository.findAllMovies());
+    }
+
+    @Test
+    public void testJdbcWritesAreStoredWithTheVersion() {
+        long base = jdbcRepository.getCatalogVersion().getAsLong();
+        assertEquals(0, base);
+
+        jdbcRepository.saveMovie(new Movie(100L, "New Voyage", "Test Director", 2024, "Adventure", "A test voyage", 100, 4.0), base + 1);
+        jdbcRepository.saveMovie(new Movie(1L, "Renamed", "Test Director", 2024, "Adventure", "A test voyage", 100, 4.0), base + 2);
+        jdbcRepository.addReview(100L, new Review("Captain", "🏴‍☠️", 5.0, "A fine voyage"), base + 3);
+        assertTrue(jdbcRepository.deleteMovie(2L, base + 4));
+        assertFalse(jdbcRepository.deleteMovie(2L, base + 5));
+
+        JdbcMovieRepository reopened = new JdbcMovieRepository(dataSource, jsonRepository);
+        assertEquals(base + 4, reopened.getCatalogVersion().getAsLong());
+        List<Movie> movies = reopened.findAllMovies();
+        assertEquals(12, movies.size());
+        assertEquals("Renamed", movies.get(0).getMovieName());
+        assertFalse(ids(movies).contains(2L));
+        assertEquals(100L, movies.get(11).getId());
+        assertEquals("A fine voyage", reopened.findReviewsForMovie(100L).get(0).getComment());
+        assertTrue(reopened.findReviewsForMovie(2L).isEmpty());
+    }
+
+    @Test
+    public void testJdbcWriteWithStaleVersionIsRolledBack() {
+        long base = jdbcRepository.getCatalogVersion().getAsLong();
+        Movie movie = new Movie(100L, "New Voyage", "Test Director", 2024, "Adventure", "A test voyage", 100, 4.0);
+
+        assertThrows(IllegalStateException.class, () -> jdbcRepository.saveMovie(movie, base));
+        assertEquals(12, jdbcRepository.findAllMovies().size());
+        assertEquals(base, jdbcRepository.getCatalogVersion().getAsLong());
+    }
+
+    @Test
+    public void testJsonCatalogIsReadOnlyWithoutVersion() {
+        assertFalse(jsonRepository.getCatalogVersion().isPresent());
+
+        Movie movie = jsonRepository.findAllMovies().get(0);
+        assertThrows(UnsupportedOperationException.class, () -> jsonRepository.saveMovie(movie, 1));
+        assertThrows(UnsupportedOperationException.class, () -> jsonRepository.deleteMovie(1L, 1));
+        assertThrows(UnsupportedOperationException.class,
+            () -> jsonRepository.addReview(1L, new Review("Captain", "🏴‍☠️", 5.0, "A fine voyage"), 1));
+    }
+
+    /**
+     * @return a pool over a new, empty in-memory database, which lives as long as the pool
+     */
+    static HikariDataSource inMemoryDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:movies-" + UUID.randomUUID());
+        config.setUsername("sa");
+        config.setMaximumPoolSize(2);
+        return new HikariDataSource(config);
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).collect(Collectors.toList());
+    }
+}
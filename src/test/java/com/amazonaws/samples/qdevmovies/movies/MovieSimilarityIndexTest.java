@@ -0,0 +1,120 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieSimilarityIndexTest {
+
+    private MovieSimilarityIndex index;
+    private List<Movie> catalog;
+
+    @BeforeEach
+    public void setUp() {
+        index = new MovieSimilarityIndex(2, id -> OptionalDouble.empty());
+        catalog = new ArrayList<>(Arrays.asList(
+            new Movie(1L, "The Family Boss", "Michael Filmmaker", 1972, "Crime/Drama", "Mob story", 175, 5.0),
+            new Movie(2L, "The Wise Guys", "Martin Filmmaker", 1990, "Crime/Drama", "Mob story", 146, 4.5),
+            new Movie(3L, "Urban Stories", "Quinn Director", 1994, "Crime/Drama", "City stories", 154, 4.5),
+            new Movie(4L, "Space Wars", "George Director", 1977, "Adventure/Sci-Fi", "Space opera", 121, 4.5),
+            new Movie(5L, "Dream Heist", "Chris Moviemaker", 2010, "Action/Sci-Fi", "Dream caper", 148, 4.5)
+        ));
+        index.rebuild(catalog);
+    }
+
+    @Test
+    public void testNeighborsShareGenres() {
+        assertEquals(Arrays.asList(2L, 3L), index.similarTo(1L));
+        assertEquals(5L, (long) index.similarTo(4L).get(0));
+    }
+
+    @Test
+    public void testUnknownMovieHasNoNeighbors() {
+        assertTrue(index.similarTo(99L).isEmpty());
+    }
+
+    @Test
+    public void testUpsertMatchesFullRebuild() {
+        Movie sequel = new Movie(6L, "Space Wars II", "George Director", 1980, "Adventure/Sci-Fi", "More space", 124, 4.5);
+        index.upsert(sequel);
+
+        catalog.add(sequel);
+        MovieSimilarityIndex rebuilt = new MovieSimilarityIndex(2, id -> OptionalDouble.empty());
+        rebuilt.rebuild(catalog);
+
+        for (Movie movie : catalog) {
+            assertEquals(rebuilt.similarTo(movie.getId()), index.similarTo(movie.getId()), "Neighbors of " + movie.getId());
+        }
+        assertEquals(6L, (long) index.similarTo(4L).get(0));
+    }
+
+    @Test
+    public void testUpdatedMovieIsReranked() {
+        Movie remade = new Movie(2L, "The Wise Guys", "George Director", 1978, "Adventure/Sci-Fi", "Now in space", 120, 4.5);
+        index.upsert(remade);
+
+        catalog.set(1, remade);
+        MovieSimilarityIndex rebuilt = new MovieSimilarityIndex(2, id -> OptionalDouble.empty());
+        rebuilt.rebuild(catalog);
+
+        for (Movie movie : catalog) {
+            assertEquals(rebuilt.similarTo(movie.getId()), index.similarTo(movie.getId()), "Neighbors of " + movie.getId());
+        }
+    }
+
+    @Test
+    public void testRemoveRefillsNeighborLists() {
+        index.remove(2L);
+
+        assertTrue(index.similarTo(2L).isEmpty());
+        assertFalse(index.similarTo(1L).contains(2L));
+        assertEquals(2, index.similarTo(1L).size());
+    }
+
+    @Test
+    public void testRandomChangesMatchFullRebuild() {
+        Random random = new Random(31);
+        String[] genres = {"Drama", "Crime/Drama", "Action/Sci-Fi", "Comedy", "Adventure/Sci-Fi"};
+        String[] directors = {"Ann Director", "Bob Director", "Cy Director"};
+        Map<Long, Movie> movies = new TreeMap<>();
+        MovieSimilarityIndex incremental = new MovieSimilarityIndex(3, id -> OptionalDouble.empty());
+        for (int step = 0; step < 400; step++) {
+            long id = 1 + random.nextInt(40);
+            if (random.nextInt(4) == 0) {
+                movies.remove(id);
+                incremental.remove(id);
+            } else {
+                // Few distinct values, so many movies tie on distance
+                Movie movie = new Movie(id, "Movie " + id, directors[random.nextInt(directors.length)],
+                    1990 + 5 * random.nextInt(3), genres[random.nextInt(genres.length)], "Story",
+                    100 + 10 * random.nextInt(3), 3.0 + random.nextInt(3));
+                movies.put(id, movie);
+                incremental.upsert(movie);
+            }
+        }
+
+        MovieSimilarityIndex rebuilt = new MovieSimilarityIndex(3, id -> OptionalDouble.empty());
+        rebuilt.rebuild(movies.values());
+        for (long id = 1; id <= 40; id++) {
+            assertEquals(rebuilt.similarTo(id), incremental.similarTo(id), "Neighbors of " + id);
+        }
+    }
+
+    @Test
+    public void testAudienceRatingIsAFeature() {
+        MovieSimilarityIndex withReviews = new MovieSimilarityIndex(1,
+            id -> id == 2L ? OptionalDouble.of(1.0) : OptionalDouble.empty());
+        withReviews.rebuild(catalog);
+
+        assertEquals(3L, (long) withReviews.similarTo(1L).get(0));
+    }
+}
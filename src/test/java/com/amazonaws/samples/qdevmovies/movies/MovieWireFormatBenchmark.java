@@ -0,0 +1,53 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encode and decode cost of a full-catalog search response in each negotiated wire format.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+public class MovieWireFormatBenchmark {
+    private static final Logger logger = LogManager.getLogger(MovieWireFormatBenchmark.class);
+
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void benchmarkEncodeDecode() throws Exception {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("message", "Ahoy! Found 12 treasures matching yer search!");
+        response.put("movies", new MovieService().getAllMovies());
+
+        for (ObjectMapper mapper : new ObjectMapper[] {
+                new ObjectMapper(), new ObjectMapper(new CBORFactory()), new ObjectMapper(new SmileFactory())}) {
+            byte[] payload = mapper.writeValueAsBytes(response);
+            // A full untimed pass lets the JIT compile each format's generator and parser first
+            for (int i = 0; i < ITERATIONS; i++) {
+                mapper.readTree(mapper.writeValueAsBytes(response));
+            }
+
+            long encodeStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                mapper.writeValueAsBytes(response);
+            }
+            long encodeNanos = (System.nanoTime() - encodeStart) / ITERATIONS;
+
+            long decodeStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                mapper.readTree(payload);
+            }
+            long decodeNanos = (System.nanoTime() - decodeStart) / ITERATIONS;
+
+            logger.info("{}: {} bytes, encode {} ns/op, decode {} ns/op",
+                    mapper.getFactory().getFormatName(), payload.length, encodeNanos, decodeNanos);
+        }
+    }
+}
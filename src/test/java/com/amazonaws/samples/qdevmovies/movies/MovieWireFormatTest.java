@@ -0,0 +1,105 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the negotiated wire formats of the search API on the full movie catalog.
+ */
+public class MovieWireFormatTest {
+    private static final Logger logger = LogManager.getLogger(MovieWireFormatTest.class);
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    private MovieService movieService;
+    private MovieSearchResponse response;
+
+    @BeforeEach
+    public void setUp() {
+        movieService = new MovieService();
+        response = MovieSearchResponse.found("Ahoy! Found 12 treasures matching yer search!", movieService.getAllMovies());
+    }
+
+    @Test
+    public void testBinaryFormatsRoundTripToSameDocument() throws Exception {
+        JsonNode expected = jsonMapper.readTree(jsonMapper.writeValueAsBytes(response));
+
+        assertEquals(expected, cborMapper.readTree(cborMapper.writeValueAsBytes(response)));
+        assertEquals(expected, smileMapper.readTree(smileMapper.writeValueAsBytes(response)));
+    }
+
+    @Test
+    public void testBinaryFormatsAreSmallerThanJson() throws Exception {
+        int jsonSize = jsonMapper.writeValueAsBytes(response).length;
+        int cborSize = cborMapper.writeValueAsBytes(response).length;
+        int smileSize = smileMapper.writeValueAsBytes(response).length;
+
+        logger.info("Search payload sizes - JSON: {} bytes, CBOR: {} bytes, Smile: {} bytes", jsonSize, cborSize, smileSize);
+        assertTrue(cborSize < jsonSize);
+        assertTrue(smileSize < jsonSize);
+    }
+
+    @Test
+    public void testSearchNegotiatesBinaryFormats() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(searchController()).build();
+        JsonNode expected = jsonMapper.readTree(mockMvc.perform(get("/movies/search").param("genre", "drama")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsByteArray());
+        assertTrue(expected.get("movies").size() > 0);
+
+        byte[] cbor = mockMvc.perform(get("/movies/search").param("genre", "drama")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(expected, cborMapper.readTree(cbor));
+
+        byte[] smile = mockMvc.perform(get("/movies/search").param("genre", "drama")
+                        .accept(MoviesController.SMILE_MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MoviesController.SMILE_MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(expected, smileMapper.readTree(smile));
+    }
+
+    @Test
+    public void testQueryNegotiatesBinaryFormats() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(searchController()).build();
+
+        byte[] cbor = mockMvc.perform(get("/movies/search").param("q", "genre:drama")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode node = cborMapper.readTree(cbor);
+        assertTrue(node.get("success").asBoolean());
+        assertEquals(movieService.queryMovies("genre:drama").size(), node.get("movies").size());
+    }
+
+    private MoviesController searchController() throws Exception {
+        MoviesController controller = new MoviesController();
+        java.lang.reflect.Field movieServiceField = MoviesController.class.getDeclaredField("movieService");
+        movieServiceField.setAccessible(true);
+        movieServiceField.set(controller, movieService);
+        return controller;
+    }
+}
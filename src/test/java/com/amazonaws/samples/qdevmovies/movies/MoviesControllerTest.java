@@ -1,16 +1,20 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.springframework.ui.ExtendedModelMap;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,6 +24,7 @@ public class MoviesControllerTest {
     private Model model;
     private MovieService mockMovieService;
     private ReviewService mockReviewService;
+    private MovieDetailsComposer detailsComposer;
 
     @BeforeEach
     public void setUp() {
@@ -27,7 +32,7 @@ public class MoviesControllerTest {
         model = new ExtendedModelMap();
         
         // Create mock services
-        mockMovieService = new MovieService() {
+        mockMovieService = new MovieService(new InMemoryMovieRepository()) {
             @Override
             public List<Movie> getAllMovies() {
                 return Arrays.asList(
@@ -68,7 +73,7 @@ public class MoviesControllerTest {
                     }
                     
                     if (id != null && id > 0) {
-                        if (!movie.getId().equals(id)) {
+                        if (movie.getId() != id) {
                             matches = false;
                         }
                     }
@@ -103,11 +108,27 @@ public class MoviesControllerTest {
             java.lang.reflect.Field reviewServiceField = MoviesController.class.getDeclaredField("reviewService");
             reviewServiceField.setAccessible(true);
             reviewServiceField.set(moviesController, mockReviewService);
+            
+            java.lang.reflect.Field recommendationServiceField = MoviesController.class.getDeclaredField("recommendationService");
+            recommendationServiceField.setAccessible(true);
+            RecommendationService recommendationService = new RecommendationService(mockMovieService, mockReviewService, 2);
+            recommendationServiceField.set(moviesController, recommendationService);
+            
+            java.lang.reflect.Field detailsComposerField = MoviesController.class.getDeclaredField("detailsComposer");
+            detailsComposerField.setAccessible(true);
+            detailsComposer = new MovieDetailsComposer(mockReviewService, recommendationService,
+                Executors.newFixedThreadPool(2), Duration.ofSeconds(5));
+            detailsComposerField.set(moviesController, detailsComposer);
         } catch (Exception e) {
             throw new RuntimeException("Failed to inject mock services", e);
         }
     }
 
+    @AfterEach
+    public void tearDown() {
+        detailsComposer.shutdown();
+    }
+
     @Test
     public void testGetMovies() {
         String result = moviesController.getMovies(model);
@@ -122,6 +143,43 @@ public class MoviesControllerTest {
         String result = moviesController.getMovieDetails(1L, model);
         assertNotNull(result);
         assertEquals("movie-details", result);
+        assertEquals(false, model.getAttribute("reviewsUnavailable"));
+        assertNotNull(model.getAttribute("allReviews"));
+        assertNotNull(model.getAttribute("movieIcon"));
+    }
+
+    @Test
+    public void testGetMovieDetailsIncludesSimilarMovies() {
+        moviesController.getMovieDetails(1L, model);
+        
+        @SuppressWarnings("unchecked")
+        List<Movie> similar = (List<Movie>) model.getAttribute("similarMovies");
+        assertNotNull(similar);
+        assertEquals(1, similar.size());
+        assertEquals(2L, similar.get(0).getId());
+    }
+
+    @Test
+    public void testGetSimilarMoviesApi() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getSimilarMoviesApi(1L, 1);
+        
+        assertEquals(200, response.getStatusCodeValue());
+        Map<String, Object> body = response.getBody();
+        assertNotNull(body);
+        assertTrue((Boolean) body.get("success"));
+        
+        @SuppressWarnings("unchecked")
+        List<Movie> movies = (List<Movie>) body.get("movies");
+        assertEquals(1, movies.size());
+        assertNotEquals(1L, movies.get(0).getId());
+    }
+
+    @Test
+    public void testGetSimilarMoviesApiNotFound() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getSimilarMoviesApi(999L, null);
+        
+        assertEquals(404, response.getStatusCodeValue());
+        assertFalse((Boolean) response.getBody().get("success"));
     }
 
     @Test
@@ -142,86 +200,187 @@ public class MoviesControllerTest {
 
     @Test
     public void testSearchMoviesApiWithName() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMoviesApi("Test", null, null);
+        ResponseEntity<MovieSearchResponse> response = moviesController.searchMoviesApi("Test", null, null);
         
         assertEquals(200, response.getStatusCodeValue());
-        Map<String, Object> body = response.getBody();
+        MovieSearchResponse body = response.getBody();
         assertNotNull(body);
-        assertTrue((Boolean) body.get("success"));
+        assertTrue(body.isSuccess());
         
-        @SuppressWarnings("unchecked")
-        List<Movie> movies = (List<Movie>) body.get("movies");
+        List<Movie> movies = body.getMovies();
         assertEquals(1, movies.size());
         assertEquals("Test Movie", movies.get(0).getMovieName());
     }
 
     @Test
     public void testSearchMoviesApiWithGenre() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMoviesApi(null, null, "Action");
+        ResponseEntity<MovieSearchResponse> response = moviesController.searchMoviesApi(null, null, "Action");
         
         assertEquals(200, response.getStatusCodeValue());
-        Map<String, Object> body = response.getBody();
+        MovieSearchResponse body = response.getBody();
         assertNotNull(body);
-        assertTrue((Boolean) body.get("success"));
+        assertTrue(body.isSuccess());
         
-        @SuppressWarnings("unchecked")
-        List<Movie> movies = (List<Movie>) body.get("movies");
+        List<Movie> movies = body.getMovies();
         assertEquals(1, movies.size());
         assertEquals("Action Movie", movies.get(0).getMovieName());
     }
 
     @Test
     public void testSearchMoviesApiWithId() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMoviesApi(null, 2L, null);
+        ResponseEntity<MovieSearchResponse> response = moviesController.searchMoviesApi(null, 2L, null);
         
         assertEquals(200, response.getStatusCodeValue());
-        Map<String, Object> body = response.getBody();
+        MovieSearchResponse body = response.getBody();
         assertNotNull(body);
-        assertTrue((Boolean) body.get("success"));
+        assertTrue(body.isSuccess());
         
-        @SuppressWarnings("unchecked")
-        List<Movie> movies = (List<Movie>) body.get("movies");
+        List<Movie> movies = body.getMovies();
         assertEquals(1, movies.size());
         assertEquals("Action Movie", movies.get(0).getMovieName());
     }
 
     @Test
     public void testSearchMoviesApiWithInvalidId() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMoviesApi(null, -1L, null);
+        ResponseEntity<MovieSearchResponse> response = moviesController.searchMoviesApi(null, -1L, null);
         
         assertEquals(400, response.getStatusCodeValue());
+        MovieSearchResponse body = response.getBody();
+        assertNotNull(body);
+        assertFalse(body.isSuccess());
+        assertTrue(body.getMessage().contains("invalid"));
+    }
+
+    @Test
+    public void testQueryMoviesApi() {
+        ResponseEntity<MovieSearchResponse> response = moviesController.queryMoviesApi("genre:drama AND year:..1979");
+
+        assertEquals(200, response.getStatusCodeValue());
+        MovieSearchResponse body = response.getBody();
+        assertNotNull(body);
+        assertTrue(body.isSuccess());
+
+        List<Movie> movies = body.getMovies();
+        assertFalse(movies.isEmpty());
+        assertTrue(movies.stream().allMatch(movie -> movie.getGenre().contains("Drama") && movie.getYear() <= 1979));
+    }
+
+    @Test
+    public void testQueryMoviesApiWithMalformedQuery() {
+        ResponseEntity<MovieSearchResponse> response = moviesController.queryMoviesApi("genre:drama AND (year:1994");
+
+        assertEquals(400, response.getStatusCodeValue());
+        MovieSearchResponse body = response.getBody();
+        assertNotNull(body);
+        assertFalse(body.isSuccess());
+        assertTrue(body.getMessage().contains("Missing ')'"));
+    }
+
+    @Test
+    public void testQueryMoviesApiRejectsDeepNesting() {
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            query.append('(');
+        }
+        ResponseEntity<MovieSearchResponse> response = moviesController.queryMoviesApi(query.append("drama").toString());
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertTrue(response.getBody().getMessage().contains("nested deeper"));
+    }
+
+    @Test
+    public void testGetTopMoviesApi() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getTopMoviesApi("drama", null, 3, "imdb");
+
+        assertEquals(200, response.getStatusCodeValue());
+        Map<String, Object> body = response.getBody();
+        assertNotNull(body);
+        assertTrue((Boolean) body.get("success"));
+        List<?> movies = (List<?>) body.get("movies");
+        List<?> scores = (List<?>) body.get("scores");
+        assertEquals(3, movies.size());
+        assertEquals(3, scores.size());
+        for (int i = 1; i < scores.size(); i++) {
+            assertTrue((Double) scores.get(i - 1) >= (Double) scores.get(i));
+        }
+        assertTrue(movies.stream().allMatch(movie -> ((Movie) movie).getGenre().toLowerCase().contains("drama")));
+    }
+
+    @Test
+    public void testGetTopMoviesApiWithInvalidParameters() {
+        assertEquals(400, moviesController.getTopMoviesApi(null, null, null, "popcorn").getStatusCodeValue());
+        assertEquals(400, moviesController.getTopMoviesApi(null, null, 0, "imdb").getStatusCodeValue());
+    }
+
+    @Test
+    public void testGetChangesApi() {
+        long since = mockMovieService.getCatalogVersion().getAsLong();
+        mockMovieService.upsertMovie(new Movie(99L, "Fresh Voyage", "New Director", 2024, "Adventure", "Brand new", 100, 4.0));
+
+        ResponseEntity<Map<String, Object>> response = moviesController.getChangesApi(since);
+
+        assertEquals(200, response.getStatusCodeValue());
+        Map<String, Object> body = response.getBody();
+        assertNotNull(body);
+        assertTrue((Boolean) body.get("success"));
+        assertFalse((Boolean) body.get("fullResync"));
+        assertEquals(since + 1, body.get("version"));
+        List<?> added = (List<?>) body.get("added");
+        assertEquals(1, added.size());
+        assertEquals("Fresh Voyage", ((Movie) added.get(0)).getMovieName());
+    }
+
+    @Test
+    public void testGetChangesApiRequiresResyncForUnknownVersion() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getChangesApi(0);
+
+        assertEquals(200, response.getStatusCodeValue());
+        Map<String, Object> body = response.getBody();
+        assertNotNull(body);
+        assertTrue((Boolean) body.get("fullResync"));
+        assertEquals(mockMovieService.getCatalogVersion().getAsLong(), body.get("version"));
+        assertTrue(((List<?>) body.get("added")).isEmpty());
+    }
+
+    @Test
+    public void testGetChangesApiOnReadOnlyCatalog() throws Exception {
+        java.lang.reflect.Field movieServiceField = MoviesController.class.getDeclaredField("movieService");
+        movieServiceField.setAccessible(true);
+        movieServiceField.set(moviesController, new MovieService(new JsonMovieRepository()));
+
+        ResponseEntity<Map<String, Object>> response = moviesController.getChangesApi(0);
+
+        assertEquals(404, response.getStatusCodeValue());
         Map<String, Object> body = response.getBody();
         assertNotNull(body);
         assertFalse((Boolean) body.get("success"));
-        assertTrue(body.get("message").toString().contains("invalid"));
+        assertFalse(body.containsKey("version"));
     }
 
     @Test
     public void testSearchMoviesApiNoResults() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMoviesApi("NonExistent", null, null);
+        ResponseEntity<MovieSearchResponse> response = moviesController.searchMoviesApi("NonExistent", null, null);
         
         assertEquals(200, response.getStatusCodeValue());
-        Map<String, Object> body = response.getBody();
+        MovieSearchResponse body = response.getBody();
         assertNotNull(body);
-        assertTrue((Boolean) body.get("success"));
+        assertTrue(body.isSuccess());
         
-        @SuppressWarnings("unchecked")
-        List<Movie> movies = (List<Movie>) body.get("movies");
+        List<Movie> movies = body.getMovies();
         assertTrue(movies.isEmpty());
-        assertTrue(body.get("message").toString().contains("No movies found"));
+        assertTrue(body.getMessage().contains("No movies found"));
     }
 
     @Test
     public void testSearchMoviesApiMultipleCriteria() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMoviesApi("Action", null, "Action");
+        ResponseEntity<MovieSearchResponse> response = moviesController.searchMoviesApi("Action", null, "Action");
         
         assertEquals(200, response.getStatusCodeValue());
-        Map<String, Object> body = response.getBody();
+        MovieSearchResponse body = response.getBody();
         assertNotNull(body);
-        assertTrue((Boolean) body.get("success"));
+        assertTrue(body.isSuccess());
         
-        @SuppressWarnings("unchecked")
-        List<Movie> movies = (List<Movie>) body.get("movies");
+        List<Movie> movies = body.getMovies();
         assertEquals(1, movies.size());
         assertEquals("Action Movie", movies.get(0).getMovieName());
     }
@@ -268,4 +427,32 @@ public class MoviesControllerTest {
         assertEquals(1L, model.getAttribute("searchId"));
         assertEquals("Drama", model.getAttribute("searchGenre"));
     }
+
+    /**
+     * Bundled catalog that takes writes in memory, so the change feed has something to report
+     */
+    private static final class InMemoryMovieRepository extends JsonMovieRepository {
+        private long version = 42;
+
+        @Override
+        public OptionalLong getCatalogVersion() {
+            return OptionalLong.of(version);
+        }
+
+        @Override
+        public void saveMovie(Movie movie, long version) {
+            this.version = version;
+        }
+
+        @Override
+        public boolean deleteMovie(long movieId, long version) {
+            this.version = version;
+            return true;
+        }
+
+        @Override
+        public void addReview(long movieId, Review review, long version) {
+            this.version = version;
+        }
+    }
 }
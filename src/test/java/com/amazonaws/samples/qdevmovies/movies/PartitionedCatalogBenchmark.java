@@ -0,0 +1,48 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Cost of a full scan over a 100k-movie catalog, sequentially and split across partitions.
+ * Run with {@code mvn -Pbenchmark test}; the speed-up depends on the cores available.
+ */
+public class PartitionedCatalogBenchmark {
+    private static final Logger logger = LogManager.getLogger(PartitionedCatalogBenchmark.class);
+
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void benchmarkSequentialAndParallelScan() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Movie> movies = PartitionedCatalogTest.syntheticCatalog(100_000);
+            Predicate<Movie> wideScan = movie -> movie.getMovieName().toLowerCase().contains("movie 9");
+
+            long sequentialNanos = time(new PartitionedCatalog(movies, 1, 0, pool), wideScan);
+            long parallelNanos = time(new PartitionedCatalog(movies, 4, 0, pool), wideScan);
+
+            logger.info("Wide scan of {} movies - sequential: {} us/op, 4 partitions: {} us/op",
+                    movies.size(), sequentialNanos / 1000, parallelNanos / 1000);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long time(PartitionedCatalog catalog, Predicate<Movie> predicate) {
+        // Untimed pass first, so the pool's workers are started and the scan loop is compiled
+        for (int i = 0; i < ITERATIONS; i++) {
+            catalog.filter(predicate);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            catalog.filter(predicate);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
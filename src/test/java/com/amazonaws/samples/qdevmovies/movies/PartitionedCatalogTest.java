@@ -0,0 +1,94 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedCatalogTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testParallelScanKeepsCatalogOrder() {
+        List<Movie> movies = syntheticCatalog(1000);
+        PartitionedCatalog catalog = new PartitionedCatalog(movies, 4, 0, pool);
+        Predicate<Movie> evenYears = movie -> movie.getYear() % 2 == 0;
+
+        List<Movie> expected = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (evenYears.test(movie)) {
+                expected.add(movie);
+            }
+        }
+
+        assertTrue(catalog.isParallel());
+        assertEquals(4, catalog.getPartitionCount());
+        assertEquals(expected, catalog.filter(evenYears));
+    }
+
+    @Test
+    public void testParallelScanUsesPoolThreads() {
+        PartitionedCatalog catalog = new PartitionedCatalog(syntheticCatalog(100), 4, 0, pool);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        catalog.filter(movie -> threads.add(Thread.currentThread().getName()) || true);
+
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void testSmallCatalogStaysOnCallerThread() {
+        PartitionedCatalog catalog = new PartitionedCatalog(syntheticCatalog(100), 4, 1000, pool);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        List<Movie> all = catalog.filter(movie -> threads.add(Thread.currentThread().getName()) || true);
+
+        assertFalse(catalog.isParallel());
+        assertEquals(100, all.size());
+        assertEquals(1, threads.size());
+        assertTrue(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void testUnevenAndTinyCatalogsArePartitionedSafely() {
+        assertEquals(4, new PartitionedCatalog(syntheticCatalog(10), 4, 0, pool).filter(movie -> movie.getId() <= 4).size());
+        assertEquals(1, new PartitionedCatalog(syntheticCatalog(1), 8, 0, pool).getPartitionCount());
+        assertTrue(new PartitionedCatalog(new ArrayList<>(), 8, 0, pool).filter(movie -> true).isEmpty());
+    }
+
+    @Test
+    public void testMovieServiceParallelSearchMatchesSequential() {
+        JsonMovieRepository repository = new JsonMovieRepository();
+        MovieService sequential = new MovieService(repository, Integer.MAX_VALUE);
+        MovieService parallel = new MovieService(repository, 0);
+
+        assertEquals(ids(sequential.searchMovies(null, null, "drama")), ids(parallel.searchMovies(null, null, "drama")));
+        assertEquals(ids(sequential.searchMovies("the", null, null)), ids(parallel.searchMovies("the", null, null)));
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).collect(Collectors.toList());
+    }
+
+    static List<Movie> syntheticCatalog(int size) {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            movies.add(new Movie(i, "Movie " + i, "Director " + (i % 7), 1950 + i % 70, "Drama",
+                    "Description " + i, 90 + i % 60, (i % 50) / 10.0));
+        }
+        return movies;
+    }
+}
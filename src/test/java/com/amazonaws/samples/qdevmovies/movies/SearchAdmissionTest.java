@@ -0,0 +1,233 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchAdmissionTest {
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    public void testTokenBucketAllowsBurstThenRejects() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3, 100, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("pirate"));
+        assertEquals(0, limiter.tryAcquire("pirate"));
+        assertEquals(0, limiter.tryAcquire("pirate"));
+        long wait = limiter.tryAcquire("pirate");
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testTokenBucketRefillsOverTime() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, 100, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("pirate"));
+        assertTrue(limiter.tryAcquire("pirate") > 0);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, limiter.tryAcquire("pirate"));
+    }
+
+    @Test
+    public void testTokenBucketsArePerClient() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("pirate"));
+        assertTrue(limiter.tryAcquire("pirate") > 0);
+        assertEquals(0, limiter.tryAcquire("parrot"));
+    }
+
+    @Test
+    public void testIdleBucketsAreEvictedAtClientCap() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.tryAcquire("c"));
+
+        assertEquals(2, limiter.getTrackedClientCount());
+    }
+
+    @Test
+    public void testNewClientsAreTurnedAwayWhileAllTrackedClientsAreActive() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, 2, clock::get);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("b"));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.tryAcquire("c"));
+        assertEquals(2, limiter.getTrackedClientCount());
+        assertTrue(limiter.tryAcquire("a") > 0);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertEquals(2, limiter.getTrackedClientCount());
+    }
+
+    @Test
+    public void testClientCapHoldsUnderKeyFlood() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, 100, clock::get);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("flood-" + i);
+            if (i % 200 == 0) {
+                clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+            assertTrue(limiter.getTrackedClientCount() <= 100);
+        }
+        assertTrue(limiter.getRejectedCount() > 0);
+    }
+
+    @Test
+    public void testConcurrencyLimiterRejectsBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 2.0, 0.5, clock::get);
+
+        long first = limiter.tryAcquire();
+        long second = limiter.tryAcquire();
+
+        assertTrue(first >= 0);
+        assertTrue(second >= 0);
+        assertEquals(-1, limiter.tryAcquire());
+        assertEquals(1, limiter.getRejectedCount());
+
+        limiter.release(first, true);
+        assertTrue(limiter.tryAcquire() >= 0);
+    }
+
+    @Test
+    public void testConcurrencyLimitGrowsWhileLatencyHolds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 2.0, 0.5, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            long a = limiter.tryAcquire();
+            long b = limiter.tryAcquire();
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            limiter.release(a, true);
+            limiter.release(b, true);
+        }
+
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    public void testConcurrencyLimitBacksOffWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, 2.0, 0.5, clock::get);
+        long fast = limiter.tryAcquire();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        limiter.release(fast, true);
+
+        long[] slow = new long[6];
+        for (int i = 0; i < slow.length; i++) {
+            slow[i] = limiter.tryAcquire();
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.release(slow[0], true);
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testInterceptorReturns429WithRetryAfter() throws Exception {
+        SearchAdmissionInterceptor interceptor = new SearchAdmissionInterceptor(
+                new TokenBucketRateLimiter(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimiter(10, 1, 10, 2.0, 0.5, clock::get));
+
+        MockHttpServletRequest request = searchRequest("10.0.0.1");
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(searchRequest("10.0.0.1"), rejected, null));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("\"success\":false"));
+    }
+
+    @Test
+    public void testClientIdHeaderDoesNotBuyAFreshBucket() throws Exception {
+        SearchAdmissionInterceptor interceptor = new SearchAdmissionInterceptor(
+                new TokenBucketRateLimiter(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimiter(10, 1, 10, 2.0, 0.5, clock::get));
+
+        MockHttpServletRequest first = searchRequest("10.0.0.1");
+        first.addHeader("X-Client-Id", "one");
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+
+        MockHttpServletRequest second = searchRequest("10.0.0.1");
+        second.addHeader("X-Client-Id", "two");
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(second, rejected, null));
+        assertEquals(429, rejected.getStatus());
+    }
+
+    @Test
+    public void testAuthenticatedUsersHaveTheirOwnBuckets() throws Exception {
+        SearchAdmissionInterceptor interceptor = new SearchAdmissionInterceptor(
+                new TokenBucketRateLimiter(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimiter(10, 1, 10, 2.0, 0.5, clock::get));
+
+        MockHttpServletRequest anne = searchRequest("10.0.0.1");
+        anne.setUserPrincipal(() -> "anne");
+        MockHttpServletRequest mary = searchRequest("10.0.0.1");
+        mary.setUserPrincipal(() -> "mary");
+
+        assertTrue(interceptor.preHandle(anne, new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(mary, new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    public void testInterceptorReturns503WhenOverloaded() throws Exception {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 2.0, 0.5, clock::get);
+        SearchAdmissionInterceptor interceptor = new SearchAdmissionInterceptor(
+                new TokenBucketRateLimiter(100, 100, 100, clock::get), concurrencyLimiter);
+
+        MockHttpServletRequest inFlight = searchRequest("10.0.0.1");
+        assertTrue(interceptor.preHandle(inFlight, new MockHttpServletResponse(), null));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(searchRequest("10.0.0.2"), rejected, null));
+        assertEquals(503, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+
+        interceptor.afterCompletion(inFlight, new MockHttpServletResponse(), null, null);
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    public void testInterceptorExemptsOnlyWarmupRequests() throws Exception {
+        SearchAdmissionInterceptor interceptor = new SearchAdmissionInterceptor(
+                new TokenBucketRateLimiter(1, 1, 100, clock::get),
+                new AdaptiveConcurrencyLimiter(10, 10, 10, 2.0, 0.5, clock::get));
+
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest warmup = searchRequest("127.0.0.1");
+            warmup.addHeader(WarmupRunner.WARMUP_HEADER, WarmupRunner.getWarmupToken());
+            assertTrue(interceptor.preHandle(warmup, new MockHttpServletResponse(), null));
+        }
+
+        MockHttpServletRequest guessed = searchRequest("127.0.0.1");
+        guessed.addHeader(WarmupRunner.WARMUP_HEADER, "guess");
+        assertTrue(interceptor.preHandle(guessed, new MockHttpServletResponse(), null));
+        assertFalse(interceptor.preHandle(searchRequest("127.0.0.1"), new MockHttpServletResponse(), null));
+
+        MockHttpServletRequest remote = searchRequest("10.0.0.1");
+        remote.addHeader(WarmupRunner.WARMUP_HEADER, WarmupRunner.getWarmupToken());
+        assertTrue(interceptor.preHandle(remote, new MockHttpServletResponse(), null));
+        assertFalse(interceptor.preHandle(searchRequest("10.0.0.1"), new MockHttpServletResponse(), null));
+    }
+
+    private static MockHttpServletRequest searchRequest(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/search");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
@@ -0,0 +1,127 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerTimingTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testHeaderListsPhasesInOrderWithTotal() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new ServerTimingFilter(true).doFilter(detailsRequest(), response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                RequestTiming.phase("lookup", 1L, () -> "movie", movie -> 1);
+                RequestTiming.phase("reviews", 1L, () -> "reviews", reviews -> 2);
+                resp.getWriter().write("<html>details</html>");
+            }
+        }));
+
+        String header = response.getHeader(ServerTimingFilter.HEADER);
+        assertNotNull(header);
+        assertTrue(header.matches("lookup;dur=\\d+\\.\\d\\d, reviews;dur=\\d+\\.\\d\\d, total;dur=\\d+\\.\\d\\d"), header);
+        assertEquals("<html>details</html>", response.getContentAsString());
+    }
+
+    @Test
+    public void testOtherPagesAreNotBuffered() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new ServerTimingFilter(true).doFilter(new MockHttpServletRequest("GET", "/movies/search"), response, new MockFilterChain());
+
+        assertNull(response.getHeader(ServerTimingFilter.HEADER));
+    }
+
+    @Test
+    public void testPagesStreamWithHeaderTurnedOff() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new ServerTimingFilter(false).doFilter(detailsRequest(), response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                assertSame(response, resp);
+                resp.getWriter().write("<html>");
+                resp.flushBuffer();
+                assertTrue(response.isCommitted());
+            }
+        }));
+
+        assertNull(response.getHeader(ServerTimingFilter.HEADER));
+        assertEquals("<html>", response.getContentAsString());
+    }
+
+    @Test
+    public void testPhasesOutsideARequestStillRun() {
+        assertEquals("result", RequestTiming.phase("lookup", 1L, () -> "result", result -> 1));
+    }
+
+    @Test
+    public void testSlowPhasesAreRecordedWithAttributes() throws Exception {
+        Path file = tempDir.resolve("details.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(MovieDetailsPhaseEvent.class).withThreshold(Duration.ofMillis(5));
+            recording.enable(MovieDetailsRequestEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            new ServerTimingFilter(false).doFilter(detailsRequest(), new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+                @Override
+                protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                    RequestTiming.phase("lookup", 7L, () -> "fast", movie -> 1);
+                    RequestTiming.phase("reviews", 7L, () -> {
+                        sleep(20);
+                        return "slow";
+                    }, reviews -> 3);
+                }
+            }));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> phases = events.stream()
+                .filter(event -> event.getEventType().getName().endsWith("DetailsPhase"))
+                .collect(Collectors.toList());
+        assertEquals(1, phases.size());
+        assertEquals("reviews", phases.get(0).getString("phase"));
+        assertEquals(7L, phases.get(0).getLong("movieId"));
+        assertEquals(3, phases.get(0).getInt("itemCount"));
+        assertTrue(phases.get(0).getDuration().toMillis() >= 20);
+
+        RecordedEvent request = events.stream()
+                .filter(event -> event.getEventType().getName().endsWith("DetailsRequest"))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals("/movies/7/details", request.getString("uri"));
+        assertTrue(request.getString("serverTiming").startsWith("lookup;dur="));
+    }
+
+    private static MockHttpServletRequest detailsRequest() {
+        return new MockHttpServletRequest("GET", "/movies/7/details");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
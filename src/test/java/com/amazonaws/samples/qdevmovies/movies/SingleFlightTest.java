@@ -0,0 +1,128 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    @Test
+    public void testConcurrentIdenticalCallsShareOneComputation() throws Exception {
+        SingleFlight<String, List<String>> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> flight.execute("drama", () -> {
+                    computations.incrementAndGet();
+                    awaitQuietly(release);
+                    List<String> result = new ArrayList<>();
+                    result.add("The Prison Escape");
+                    return result;
+                })));
+            }
+            waitForCalls(flight, CALLERS);
+            release.countDown();
+
+            List<String> first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<List<String>> future : futures) {
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(1, flight.getExecutionCount());
+            assertEquals(CALLERS, flight.getCallCount());
+            assertEquals(1.0 - 1.0 / CALLERS, flight.getCoalescingRatio(), 1e-9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialCallsRecompute() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+
+        flight.execute("drama", computations::incrementAndGet);
+        flight.execute("drama", computations::incrementAndGet);
+
+        assertEquals(2, computations.get());
+        assertEquals(0.0, flight.getCoalescingRatio());
+    }
+
+    @Test
+    public void testFailureIsSharedAndFlightIsCleared() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(executor.submit(() -> flight.execute("kraken", () -> {
+                    awaitQuietly(release);
+                    throw new IllegalStateException("The kraken ate our data");
+                })));
+            }
+            waitForCalls(flight, 2);
+            release.countDown();
+
+            for (Future<Integer> future : futures) {
+                Exception e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(42, flight.execute("kraken", () -> 42));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMovieServiceCoalescesEquivalentSearches() throws Exception {
+        MovieService movieService = new MovieService();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<List<Movie>>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                String genre = i % 2 == 0 ? "Drama" : "  drama ";
+                futures.add(executor.submit(() -> movieService.searchMovies(null, null, genre)));
+            }
+            List<Movie> expected = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<List<Movie>> future : futures) {
+                assertEquals(expected, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(CALLERS, movieService.getSearchFlight().getCallCount());
+            assertThrows(UnsupportedOperationException.class, () -> expected.add(expected.get(0)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitForCalls(SingleFlight<?, ?> flight, int calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getCallCount() < calls && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        // Give the last caller time to get from counting the call to joining the flight
+        Thread.sleep(50);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
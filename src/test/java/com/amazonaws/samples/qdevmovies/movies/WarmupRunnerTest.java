@@ -0,0 +1,55 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WarmupRunnerTest {
+
+    @Test
+    public void testWarmupCoversEveryEndpointFromASample() {
+        List<Movie> movies = new MovieService().getAllMovies();
+        List<String> paths = WarmupRunner.warmupPaths(movies);
+
+        assertEquals("/movies", paths.get(0));
+        assertEquals(1 + 2 * WarmupRunner.SAMPLE_MOVIES + 3, paths.size());
+        assertTrue(paths.contains("/movies/" + movies.get(0).getId() + "/details"));
+        assertTrue(paths.contains("/movies/" + movies.get(0).getId() + "/similar"));
+        assertTrue(paths.contains("/movies/search?name=the"));
+        assertTrue(paths.stream().anyMatch(path -> path.startsWith("/movies/search?genre=")));
+        assertTrue(paths.contains("/movies/search?q=genre%3Aadventure+year%3A2000..2009"));
+        assertEquals(paths.size(), paths.stream().distinct().count());
+    }
+
+    @Test
+    public void testWarmupStaysBoundedOnLargeCatalogs() {
+        List<String> paths = WarmupRunner.warmupPaths(CatalogMemoryReportTest.syntheticCatalog(10_000));
+
+        assertEquals(1 + 2 * WarmupRunner.SAMPLE_MOVIES + 3, paths.size());
+    }
+
+    @Test
+    public void testWarmupOfSmallCatalogs() {
+        List<Movie> movies = new MovieService().getAllMovies().subList(0, 1);
+
+        assertEquals(Arrays.asList("/movies", "/movies/1/details", "/movies/1/similar",
+                "/movies/search?name=the", "/movies/search?genre=drama",
+                "/movies/search?q=genre%3Adrama+year%3A1990..1999"), WarmupRunner.warmupPaths(movies));
+        assertEquals(Collections.singletonList("/movies"), WarmupRunner.warmupPaths(Collections.emptyList()));
+    }
+
+    @Test
+    public void testWarmupQueriesParse() {
+        MovieService movieService = new MovieService();
+        for (String path : WarmupRunner.warmupPaths(movieService.getAllMovies())) {
+            if (path.startsWith("/movies/search?q=")) {
+                String query = path.substring("/movies/search?q=".length()).replace("%3A", ":").replace('+', ' ');
+                assertFalse(movieService.queryMovies(query).isEmpty(), query);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockCompressedTextTest {
+
+    @Test
+    public void testTextsRoundTripAcrossBlocks() {
+        BlockCompressedText.Builder builder = BlockCompressedText.builder(4);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String text = "Ahoy matey number " + i + (i % 3 == 0 ? " 🏴‍☠️" : "");
+            texts.add(text);
+            assertEquals(i, builder.add(text));
+        }
+        BlockCompressedText store = builder.build();
+
+        assertEquals(10, store.size());
+        assertEquals(3, store.getBlockCount());
+        for (int i = texts.size() - 1; i >= 0; i--) {
+            assertEquals(texts.get(i), store.get(i));
+        }
+    }
+
+    @Test
+    public void testRepetitiveTextCompresses() {
+        BlockCompressedText.Builder builder = BlockCompressedText.builder();
+        for (int i = 0; i < 64; i++) {
+            builder.add("A crew of pirates sails the seven seas in search of buried treasure, episode " + i);
+        }
+        BlockCompressedText store = builder.build();
+
+        assertTrue(store.getCompressedBytes() < store.getUncompressedBytes() / 2,
+                store.getCompressedBytes() + " of " + store.getUncompressedBytes());
+    }
+
+    @Test
+    public void testOutOfRangeIndexIsRejected() {
+        BlockCompressedText store = BlockCompressedText.builder().build();
+
+        assertEquals(0, store.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(0));
+        assertThrows(IllegalArgumentException.class, () -> BlockCompressedText.builder(0));
+    }
+
+    @Test
+    public void testDictionarySharesOneInstancePerValue() {
+        StringDictionary dictionary = new StringDictionary();
+
+        String first = dictionary.canonical(new String("John Director"));
+        String second = dictionary.canonical(new String("John Director"));
+
+        assertSame(first, second);
+        assertEquals(0, dictionary.encode("John Director"));
+        assertEquals(1, dictionary.encode("Jane Director"));
+        assertEquals("Jane Director", dictionary.decode(1));
+        assertEquals(2, dictionary.size());
+        assertNull(dictionary.canonical(null));
+    }
+}
@@ -0,0 +1,78 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieIconRegistryTest {
+
+    @Test
+    public void testExactTitleRulesFromDefaultRegistry() {
+        MovieIconRegistry registry = MovieIconRegistry.getDefault();
+
+        assertEquals("🔒", registry.resolve("The Prison Escape", "Drama"));
+        assertEquals("🚀", registry.resolve("SPACE WARS: THE BEGINNING", null));
+        assertEquals("👊", registry.resolve("Underground Club", null));
+    }
+
+    @Test
+    public void testMoviesBuiltOutsideTheCatalogGetTheirRuleIcon() {
+        Movie movie = new Movie(99L, "Underground Club", "Test Director", 1999, "Drama", "Test", 139, 4.5);
+
+        assertEquals("👊", movie.getIcon());
+    }
+
+    @Test
+    public void testKeywordRulesMatchUnlistedTitles() {
+        MovieIconRegistry registry = MovieIconRegistry.getDefault();
+
+        assertEquals("🐉", registry.resolve("How to Train Your Dragon", "Animation"));
+        assertEquals("🏴‍☠️", registry.resolve("Pirates of the Seven Seas", null));
+    }
+
+    @Test
+    public void testGenreRulesApplyWhenTitleHasNoKeyword() {
+        MovieIconRegistry registry = MovieIconRegistry.getDefault();
+
+        assertEquals("👽", registry.resolve("Arrival", "Drama/Sci-Fi"));
+        assertEquals("🎬", registry.resolve("Arrival", null));
+    }
+
+    @Test
+    public void testKeywordsOnlyMatchWholeWords() {
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .add("war", "war")
+                .add("ring", "ring")
+                .build();
+
+        assertNull(matcher.findFirst("Award Season"));
+        assertNull(matcher.findFirst("Spring Break"));
+        assertEquals("war", matcher.findFirst("The War at Home"));
+        assertEquals("ring", matcher.findFirst("Lord of the Ring!"));
+    }
+
+    @Test
+    public void testEarlierKeywordWinsOverLaterMatch() {
+        KeywordMatcher<Integer> matcher = KeywordMatcher.<Integer>builder()
+                .add("star", 1)
+                .add("the", 2)
+                .add("she", 3)
+                .add("he", 4)
+                .add("hers", 5)
+                .build();
+
+        assertEquals(1, matcher.findFirst("the lone star"));
+        assertEquals(2, matcher.findFirst("ushers the way"));
+        assertEquals(5, matcher.findFirst("his and hers"));
+        assertNull(matcher.findFirst("ushers"));
+    }
+
+    @Test
+    public void testEmptyRulesFallBackToDefaultIcon() {
+        MovieIconRegistry registry = MovieIconRegistry.fromJson(new JSONObject());
+
+        assertEquals("🎬", registry.resolve("The Prison Escape", "Drama"));
+    }
+}